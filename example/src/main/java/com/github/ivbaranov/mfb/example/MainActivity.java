@@ -6,13 +6,10 @@ import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.Toolbar;
 import android.view.Menu;
 import android.view.MenuItem;
-import android.widget.TextView;
+import com.github.ivbaranov.mfb.FavoriteCounterView;
 import com.github.ivbaranov.mfb.MaterialFavoriteButton;
 
 public class MainActivity extends AppCompatActivity {
-  private TextView niceCounter;
-  private int niceCounterValue = 37;
-
   @Override protected void onCreate(Bundle savedInstanceState) {
     super.onCreate(savedInstanceState);
     setContentView(R.layout.activity_main);
@@ -37,29 +34,12 @@ public class MainActivity extends AppCompatActivity {
         });
 
     //nice cardview
-    niceCounter = (TextView) findViewById(R.id.counter_value);
-    niceCounter.setText(String.valueOf(niceCounterValue));
     MaterialFavoriteButton materialFavoriteButtonNice =
         (MaterialFavoriteButton) findViewById(R.id.favorite_nice);
     materialFavoriteButtonNice.setFavorite(true, false);
-    materialFavoriteButtonNice.setOnFavoriteChangeListener(
-        new MaterialFavoriteButton.OnFavoriteChangeListener() {
-          @Override
-          public void onFavoriteChanged(MaterialFavoriteButton buttonView, boolean favorite) {
-            if (favorite) {
-              niceCounterValue++;
-            } else {
-              niceCounterValue--;
-            }
-          }
-        });
-    materialFavoriteButtonNice.setOnFavoriteAnimationEndListener(
-        new MaterialFavoriteButton.OnFavoriteAnimationEndListener() {
-          @Override
-          public void onAnimationEnd(MaterialFavoriteButton buttonView, boolean favorite) {
-            niceCounter.setText(String.valueOf(niceCounterValue));
-          }
-        });
+    // Attached after the initial state, the count already includes it
+    FavoriteCounterView niceCounter = (FavoriteCounterView) findViewById(R.id.counter_value);
+    materialFavoriteButtonNice.setCounterView(niceCounter);
   }
 
   @Override public boolean onCreateOptionsMenu(Menu menu) {
@@ -0,0 +1,18 @@
+package com.github.ivbaranov.mfb;
+
+/**
+ * Reaches the library's package-private caches, so benchmarks can measure cold paths.
+ */
+public final class BenchmarkCaches {
+  private BenchmarkCaches() {
+  }
+
+  /**
+   * Evicts resolved attributes and drawables: the next button resolves its attributes and
+   * decodes its icons again.
+   */
+  public static void clear() {
+    AttributeCache.clear();
+    DrawableCache.clear();
+  }
+}
@@ -0,0 +1,108 @@
+package com.github.ivbaranov.mfb.benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs measured operations and writes results as JSON, one object per benchmark, so runs of
+ * different library versions can be compared by tools.
+ */
+final class Benchmarks {
+  private static final List<Result> sResults = new ArrayList<Result>();
+
+  private Benchmarks() {
+  }
+
+  /**
+   * Measured operation.
+   */
+  interface Operation {
+    void run(int iteration);
+  }
+
+  /**
+   * Runs warm up iterations, then measures time and allocated bytes of {@code iterations} runs.
+   */
+  static void measure(String name, int iterations, Operation operation) {
+    int warmUp = Math.max(10, iterations / 10);
+    for (int i = 0; i < warmUp; i++) {
+      operation.run(i);
+    }
+    long startBytes = allocatedBytes();
+    long startTime = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      operation.run(i);
+    }
+    long time = System.nanoTime() - startTime;
+    long endBytes = allocatedBytes();
+    long bytes = startBytes >= 0 && endBytes >= 0 ? endBytes - startBytes : -1;
+    synchronized (sResults) {
+      sResults.add(new Result(name, iterations, time / (double) iterations,
+          bytes >= 0 ? bytes / (double) iterations : -1));
+    }
+  }
+
+  /**
+   * Writes collected results to the file named by the {@code mfb.benchmark.output} property.
+   */
+  static void write() throws IOException {
+    String output = System.getProperty("mfb.benchmark.output", "benchmark-results.json");
+    String version = System.getProperty("mfb.benchmark.version", "unknown");
+    File file = new File(output);
+    File directory = file.getParentFile();
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Can't create " + directory);
+    }
+    Writer writer = new FileWriter(file);
+    try {
+      writer.write("{\n  \"version\": \"" + version + "\",\n  \"results\": [");
+      synchronized (sResults) {
+        for (int i = 0; i < sResults.size(); i++) {
+          Result result = sResults.get(i);
+          writer.write(i == 0 ? "\n" : ",\n");
+          writer.write(String.format(Locale.US,
+              "    {\"name\": \"%s\", \"iterations\": %d, \"nsPerOp\": %.1f, \"bytesPerOp\": %.1f}",
+              result.mName, result.mIterations, result.mNanosPerOp, result.mBytesPerOp));
+        }
+      }
+      writer.write("\n  ]\n}\n");
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Returns bytes allocated by the current thread so far, or -1 if the JVM can't tell.
+   */
+  private static long allocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+      if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+        return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+
+  private static final class Result {
+    private final String mName;
+    private final int mIterations;
+    private final double mNanosPerOp;
+    private final double mBytesPerOp;
+
+    Result(String name, int iterations, double nanosPerOp, double bytesPerOp) {
+      mName = name;
+      mIterations = iterations;
+      mNanosPerOp = nanosPerOp;
+      mBytesPerOp = bytesPerOp;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package com.github.ivbaranov.mfb.benchmark;
+
+import android.app.Activity;
+import android.view.LayoutInflater;
+import android.widget.FrameLayout;
+import com.github.ivbaranov.mfb.BenchmarkCaches;
+import com.github.ivbaranov.mfb.FavoriteStateStore;
+import com.github.ivbaranov.mfb.MaterialFavoriteButton;
+import java.io.IOException;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Measures the main costs of the button on the JVM. Absolute numbers do not match a device, they
+ * are meant to be compared between runs of different versions on the same machine.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class MaterialFavoriteButtonBenchmark {
+  private static final int ITERATIONS = 2000;
+  private static final int BIND_ITEMS = 10000;
+  private static final int BIND_BUTTONS = 20;
+
+  private Activity mActivity;
+  private FrameLayout mRoot;
+
+  @Before public void setUp() {
+    mActivity = Robolectric.setupActivity(Activity.class);
+    mRoot = new FrameLayout(mActivity);
+    mActivity.setContentView(mRoot);
+    MaterialFavoriteButton.setAnimationsEnabled(true);
+  }
+
+  @AfterClass public static void writeResults() throws IOException {
+    Benchmarks.write();
+  }
+
+  /**
+   * Inflation of a declaration seen before, served by the attribute and drawable caches.
+   */
+  @Test public void inflate() {
+    final LayoutInflater inflater = LayoutInflater.from(mActivity);
+    Benchmarks.measure("inflate", ITERATIONS, new Benchmarks.Operation() {
+      @Override public void run(int iteration) {
+        inflater.inflate(R.layout.benchmark_button, mRoot, false);
+      }
+    });
+  }
+
+  /**
+   * Inflation with empty caches, which resolves attributes and decodes icons, like the first
+   * button of a screen.
+   */
+  @Test public void inflateCold() {
+    final LayoutInflater inflater = LayoutInflater.from(mActivity);
+    Benchmarks.measure("inflate_cold", ITERATIONS, new Benchmarks.Operation() {
+      @Override public void run(int iteration) {
+        BenchmarkCaches.clear();
+        inflater.inflate(R.layout.benchmark_button, mRoot, false);
+      }
+    });
+  }
+
+  @Test public void builderCreate() {
+    final MaterialFavoriteButton.Builder builder = new MaterialFavoriteButton.Builder(mActivity)
+        .type(MaterialFavoriteButton.STYLE_HEART)
+        .color(MaterialFavoriteButton.STYLE_WHITE);
+    Benchmarks.measure("builder_create", ITERATIONS, new Benchmarks.Operation() {
+      @Override public void run(int iteration) {
+        builder.create();
+      }
+    });
+  }
+
+  @Test public void setFavorite() {
+    final MaterialFavoriteButton button = attachedButton();
+    Benchmarks.measure("set_favorite", ITERATIONS, new Benchmarks.Operation() {
+      @Override public void run(int iteration) {
+        button.setFavorite(iteration % 2 == 0);
+      }
+    });
+  }
+
+  @Test public void setFavoriteAnimated() {
+    final MaterialFavoriteButton button = attachedButton();
+    Benchmarks.measure("set_favorite_animated", ITERATIONS, new Benchmarks.Operation() {
+      @Override public void run(int iteration) {
+        button.setFavoriteAnimated(iteration % 2 == 0);
+      }
+    });
+  }
+
+  @Test public void toggleFavorite() {
+    final MaterialFavoriteButton button = attachedButton();
+    Benchmarks.measure("toggle_favorite", ITERATIONS, new Benchmarks.Operation() {
+      @Override public void run(int iteration) {
+        button.toggleFavorite(false);
+      }
+    });
+  }
+
+  @Test public void toggleFavoriteAnimated() {
+    final MaterialFavoriteButton button = attachedButton();
+    Benchmarks.measure("toggle_favorite_animated", ITERATIONS, new Benchmarks.Operation() {
+      @Override public void run(int iteration) {
+        button.toggleFavorite(true);
+      }
+    });
+  }
+
+  /**
+   * Bytes allocated by one animated change with reused animators, the steady state of a button
+   * that is tapped repeatedly.
+   */
+  @Test public void animateButtonAllocations() {
+    final MaterialFavoriteButton button = attachedButton();
+    button.setReuseAnimators(true);
+    Benchmarks.measure("animate_button_reused", ITERATIONS, new Benchmarks.Operation() {
+      @Override public void run(int iteration) {
+        button.setFavoriteAnimated(iteration % 2 == 0);
+      }
+    });
+  }
+
+  /**
+   * One operation binds {@value #BIND_ITEMS} items to a pool of recycled buttons, like scrolling
+   * through a long list.
+   */
+  @Test public void bind() {
+    final MaterialFavoriteButton[] buttons = new MaterialFavoriteButton[BIND_BUTTONS];
+    for (int i = 0; i < buttons.length; i++) {
+      buttons[i] = attachedButton();
+    }
+    final FavoriteStateStore store = new FavoriteStateStore(BIND_ITEMS);
+    for (int i = 0; i < BIND_ITEMS; i += 2) {
+      store.setFavorite(i, true);
+    }
+    Benchmarks.measure("bind_10000", 20, new Benchmarks.Operation() {
+      @Override public void run(int iteration) {
+        for (int i = 0; i < BIND_ITEMS; i++) {
+          buttons[i % BIND_BUTTONS].bind(store, i);
+        }
+      }
+    });
+  }
+
+  private MaterialFavoriteButton attachedButton() {
+    MaterialFavoriteButton button = new MaterialFavoriteButton.Builder(mActivity).create();
+    mRoot.addView(button);
+    return button;
+  }
+}
@@ -0,0 +1,344 @@
+package com.github.ivbaranov.mfb.persistence;
+
+import com.github.ivbaranov.mfb.FavoriteChangeDispatcher;
+import com.github.ivbaranov.mfb.FavoriteStateStore;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists favorite item ids in an append-only, memory-mapped log of (id, state) records.
+ *
+ * <p>Changes are written behind on a single background thread, so recording never touches the
+ * disk on the calling thread. The log is compacted to the live favorite ids once it grows past
+ * twice their number. Plug it into buttons through a {@link FavoriteChangeDispatcher}, it records
+ * every change of a button bound with {@code MaterialFavoriteButton.bind}:</p>
+ *
+ * <pre>
+ * FavoritesRepository repository = new FavoritesRepository(context.getFilesDir());
+ * FavoriteStateStore favorites = new FavoriteStateStore();
+ * repository.load(favorites);
+ * FavoriteChangeDispatcher dispatcher = new FavoriteChangeDispatcher(repository);
+ * </pre>
+ *
+ * <p>Only changes that reach the dispatcher are recorded. Changes made with {@code
+ * setFavoriteSuppressListener}, {@code postFavoriteSuppressListener} or {@code FavoritePayload}
+ * and restored states skip it: record them with {@link #record(long, boolean)} if they should be
+ * persisted.</p>
+ *
+ * <p>Every record ends with a state byte that is never 0. A tail record cut off before it, or
+ * counted in the header before it reached the disk, is dropped on open.</p>
+ *
+ * <p>The log itself only uses {@code java.io} and {@code java.nio}. Of the library it uses
+ * {@link FavoriteStateStore}, which is plain Java, and {@link FavoriteChangeDispatcher.Batch} in
+ * {@link #onFavoritesChanged} only, so everything else runs on a plain JVM.</p>
+ */
+public final class FavoritesRepository
+    implements FavoriteChangeDispatcher.OnFavoriteBatchListener, Closeable {
+  static final String LOG_FILE_NAME = "favorites.log";
+  private static final String COMPACT_FILE_NAME = "favorites.log.compact";
+  private static final int MAGIC = 0x4d46424c;
+  private static final int HEADER_SIZE = 8;
+  private static final int RECORD_SIZE = 9;
+  private static final byte STATE_FAVORITE = 'F';
+  private static final byte STATE_NOT_FAVORITE = 'N';
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+  private static final int MIN_COMPACT_RECORDS = 4096;
+
+  private final File mFile;
+  private final File mCompactFile;
+  private final ExecutorService mExecutor;
+  private final Object mLock = new Object();
+
+  private RandomAccessFile mRandomAccessFile;
+  private MappedByteBuffer mBuffer;
+  private int mRecordCount;
+  private int mCompactThreshold = MIN_COMPACT_RECORDS;
+  private IOException mWriteError;
+
+  /**
+   * @param directory directory holding the log, created if missing
+   */
+  public FavoritesRepository(File directory) {
+    mFile = new File(directory, LOG_FILE_NAME);
+    mCompactFile = new File(directory, COMPACT_FILE_NAME);
+    mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "FavoritesRepository");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Replays the log into the store. Reading is a sequential scan of mapped memory, call it once
+   * at startup before recording changes. The store is grown once up front, the log holds at most
+   * about twice as many records as favorite ids.
+   */
+  public void load(FavoriteStateStore store) throws IOException {
+    synchronized (mLock) {
+      open();
+      store.ensureCapacity(store.size() + mRecordCount);
+      replay(mBuffer, mRecordCount, store);
+      mCompactThreshold = Math.max(MIN_COMPACT_RECORDS, store.size() * 2);
+    }
+  }
+
+  /**
+   * Records favorite state of the item on the background thread, for changes that do not go
+   * through a dispatcher.
+   */
+  public void record(final long id, final boolean favorite) {
+    mExecutor.execute(new Runnable() {
+      @Override public void run() {
+        synchronized (mLock) {
+          try {
+            open();
+            append(id, favorite);
+            compactIfNeeded();
+          } catch (IOException e) {
+            mWriteError = e;
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Records changes of bound buttons, changes of buttons without an item id are ignored.
+   */
+  @Override public void onFavoritesChanged(FavoriteChangeDispatcher.Batch batch) {
+    int count = 0;
+    for (int i = 0; i < batch.size(); i++) {
+      if (batch.hasItemId(i)) {
+        count++;
+      }
+    }
+    if (count == 0) {
+      return;
+    }
+    // The batch is only valid during this call, copy it for the background thread
+    final long[] ids = new long[count];
+    final boolean[] states = new boolean[count];
+    for (int i = 0, j = 0; i < batch.size(); i++) {
+      if (batch.hasItemId(i)) {
+        ids[j] = batch.getItemId(i);
+        states[j] = batch.isFavorite(i);
+        j++;
+      }
+    }
+    mExecutor.execute(new Runnable() {
+      @Override public void run() {
+        synchronized (mLock) {
+          try {
+            open();
+            for (int i = 0; i < ids.length; i++) {
+              append(ids[i], states[i]);
+            }
+            compactIfNeeded();
+          } catch (IOException e) {
+            mWriteError = e;
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Rewrites the log to contain only the live favorite ids, on the background thread.
+   */
+  public void compact() {
+    mExecutor.execute(new Runnable() {
+      @Override public void run() {
+        synchronized (mLock) {
+          try {
+            open();
+            compactLocked();
+          } catch (IOException e) {
+            mWriteError = e;
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Waits until all recorded changes are written and forces them to the storage device.
+   *
+   * @throws IOException if writing any of the pending changes failed
+   */
+  public void flush() throws IOException {
+    try {
+      mExecutor.submit(new Runnable() {
+        @Override public void run() {
+          synchronized (mLock) {
+            if (mBuffer != null) {
+              mBuffer.force();
+            }
+          }
+        }
+      }).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while flushing favorites");
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to flush favorites: " + e.getCause());
+    }
+    throwWriteError();
+  }
+
+  /**
+   * Writes pending changes and releases the log file.
+   */
+  @Override public void close() throws IOException {
+    mExecutor.shutdown();
+    try {
+      mExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (mLock) {
+      closeLocked();
+    }
+    throwWriteError();
+  }
+
+  private void throwWriteError() throws IOException {
+    IOException error;
+    synchronized (mLock) {
+      error = mWriteError;
+      mWriteError = null;
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+
+  private void open() throws IOException {
+    if (mBuffer != null) {
+      return;
+    }
+    File directory = mFile.getParentFile();
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Can't create " + directory);
+    }
+    boolean created = !mFile.exists() || mFile.length() < HEADER_SIZE;
+    mRandomAccessFile = new RandomAccessFile(mFile, "rw");
+    long length = created ? 0 : mRandomAccessFile.length();
+    map(Math.max(INITIAL_CAPACITY, length));
+    if (created) {
+      mBuffer.putInt(0, MAGIC);
+      mBuffer.putInt(4, 0);
+      mRecordCount = 0;
+    } else {
+      if (mBuffer.getInt(0) != MAGIC) {
+        closeLocked();
+        throw new IOException(mFile + " is not a favorites log");
+      }
+      long storedRecords = (length - HEADER_SIZE) / RECORD_SIZE;
+      int count = (int) Math.min(Math.max(mBuffer.getInt(4), 0), storedRecords);
+      mRecordCount = validRecords(mBuffer, count);
+      if (mRecordCount != mBuffer.getInt(4)) {
+        // Drop the torn tail, the next change is appended over it
+        mBuffer.putInt(4, mRecordCount);
+      }
+    }
+  }
+
+  /**
+   * Returns number of leading records that were completely written.
+   */
+  private static int validRecords(MappedByteBuffer buffer, int recordCount) {
+    int position = HEADER_SIZE + 8;
+    for (int i = 0; i < recordCount; i++) {
+      byte state = buffer.get(position);
+      if (state != STATE_FAVORITE && state != STATE_NOT_FAVORITE) {
+        return i;
+      }
+      position += RECORD_SIZE;
+    }
+    return recordCount;
+  }
+
+  private void map(long capacity) throws IOException {
+    mBuffer = mRandomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+  }
+
+  private void append(long id, boolean favorite) throws IOException {
+    int position = HEADER_SIZE + mRecordCount * RECORD_SIZE;
+    if (position + RECORD_SIZE > mBuffer.capacity()) {
+      map((long) mBuffer.capacity() * 2);
+    }
+    mBuffer.putLong(position, id);
+    mBuffer.put(position + 8, favorite ? STATE_FAVORITE : STATE_NOT_FAVORITE);
+    // Count is written after the record, so a torn write only loses the last change
+    mRecordCount++;
+    mBuffer.putInt(4, mRecordCount);
+  }
+
+  private void compactIfNeeded() throws IOException {
+    if (mRecordCount > mCompactThreshold) {
+      compactLocked();
+    }
+  }
+
+  private void compactLocked() throws IOException {
+    FavoriteStateStore live = new FavoriteStateStore();
+    replay(mBuffer, mRecordCount, live);
+    long[] ids = live.toArray();
+
+    RandomAccessFile compactFile = new RandomAccessFile(mCompactFile, "rw");
+    try {
+      compactFile.setLength(0);
+      MappedByteBuffer buffer = compactFile.getChannel()
+          .map(FileChannel.MapMode.READ_WRITE, 0,
+              Math.max(INITIAL_CAPACITY, HEADER_SIZE + (long) ids.length * RECORD_SIZE * 2));
+      buffer.putInt(0, MAGIC);
+      int position = HEADER_SIZE;
+      for (long id : ids) {
+        buffer.putLong(position, id);
+        buffer.put(position + 8, STATE_FAVORITE);
+        position += RECORD_SIZE;
+      }
+      buffer.putInt(4, ids.length);
+      buffer.force();
+    } finally {
+      compactFile.close();
+    }
+
+    closeLocked();
+    if (!mCompactFile.renameTo(mFile)) {
+      throw new IOException("Can't replace " + mFile);
+    }
+    open();
+    mCompactThreshold = Math.max(MIN_COMPACT_RECORDS, ids.length * 2);
+  }
+
+  private void closeLocked() throws IOException {
+    if (mBuffer != null) {
+      mBuffer.force();
+      mBuffer = null;
+    }
+    if (mRandomAccessFile != null) {
+      mRandomAccessFile.close();
+      mRandomAccessFile = null;
+    }
+  }
+
+  private static void replay(MappedByteBuffer buffer, int recordCount, FavoriteStateStore store) {
+    int position = HEADER_SIZE;
+    for (int i = 0; i < recordCount; i++) {
+      store.setFavorite(buffer.getLong(position), buffer.get(position + 8) == STATE_FAVORITE);
+      position += RECORD_SIZE;
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package com.github.ivbaranov.mfb.persistence;
+
+import com.github.ivbaranov.mfb.FavoriteStateStore;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FavoritesRepositoryTest {
+  private static final int HEADER_SIZE = 8;
+  private static final int RECORD_SIZE = 9;
+
+  @Rule public TemporaryFolder mFolder = new TemporaryFolder();
+
+  @Test public void recordedChangesSurviveReopen() throws IOException {
+    FavoritesRepository repository = new FavoritesRepository(mFolder.getRoot());
+    repository.load(new FavoriteStateStore());
+    repository.record(1, true);
+    repository.record(2, true);
+    repository.record(3, true);
+    repository.record(2, false);
+    repository.close();
+
+    assertFavorites(load(), 1, 3);
+    assertEquals(4, recordCount());
+  }
+
+  @Test public void replayAppliesLatestState() throws IOException {
+    FavoritesRepository repository = new FavoritesRepository(mFolder.getRoot());
+    for (int i = 0; i < 101; i++) {
+      repository.record(7, i % 2 == 0);
+      repository.record(8, i % 2 == 1);
+    }
+    repository.record(Long.MIN_VALUE, true);
+    repository.record(0, true);
+    repository.close();
+
+    assertFavorites(load(), Long.MIN_VALUE, 0, 7);
+  }
+
+  @Test public void compactionKeepsOnlyLiveIds() throws IOException {
+    FavoritesRepository repository = new FavoritesRepository(mFolder.getRoot());
+    FavoriteStateStore expected = new FavoriteStateStore();
+    for (int i = 0; i < 20000; i++) {
+      long id = i % 500;
+      boolean favorite = (i / 500) % 3 != 0;
+      repository.record(id, favorite);
+      expected.setFavorite(id, favorite);
+    }
+    repository.flush();
+    // Compacted on the way, the log never grows past twice the minimum threshold
+    assertTrue("records=" + recordCount(), recordCount() <= 2 * 4096);
+
+    repository.compact();
+    repository.close();
+    assertEquals(expected.size(), recordCount());
+    assertFavorites(load(), sorted(expected.toArray()));
+  }
+
+  @Test public void uncountedTailRecordIsDropped() throws IOException {
+    FavoritesRepository repository = new FavoritesRepository(mFolder.getRoot());
+    repository.record(1, true);
+    repository.record(2, true);
+    repository.close();
+
+    // The header counts a third record whose bytes never reached the disk
+    writeRecordCount(3);
+    assertFavorites(load(), 1, 2);
+    assertEquals(2, recordCount());
+
+    repository = new FavoritesRepository(mFolder.getRoot());
+    repository.record(3, true);
+    repository.close();
+    assertFavorites(load(), 1, 2, 3);
+    assertEquals(3, recordCount());
+  }
+
+  @Test public void truncatedTailRecordIsDropped() throws IOException {
+    FavoritesRepository repository = new FavoritesRepository(mFolder.getRoot());
+    repository.record(1, true);
+    repository.record(2, true);
+    repository.record(3, true);
+    repository.close();
+
+    // The file ends in the middle of the third record
+    RandomAccessFile file = new RandomAccessFile(logFile(), "rw");
+    try {
+      file.setLength(HEADER_SIZE + 2 * RECORD_SIZE + 4);
+    } finally {
+      file.close();
+    }
+    assertFavorites(load(), 1, 2);
+
+    repository = new FavoritesRepository(mFolder.getRoot());
+    repository.record(4, true);
+    repository.close();
+    assertFavorites(load(), 1, 2, 4);
+  }
+
+  @Test(expected = IOException.class) public void foreignFileIsRejected() throws IOException {
+    RandomAccessFile file = new RandomAccessFile(logFile(), "rw");
+    try {
+      file.writeLong(0x0123456789abcdefL);
+    } finally {
+      file.close();
+    }
+    load();
+  }
+
+  private FavoriteStateStore load() throws IOException {
+    FavoritesRepository repository = new FavoritesRepository(mFolder.getRoot());
+    FavoriteStateStore store = new FavoriteStateStore();
+    try {
+      repository.load(store);
+    } finally {
+      repository.close();
+    }
+    return store;
+  }
+
+  private File logFile() {
+    return new File(mFolder.getRoot(), FavoritesRepository.LOG_FILE_NAME);
+  }
+
+  private int recordCount() throws IOException {
+    RandomAccessFile file = new RandomAccessFile(logFile(), "r");
+    try {
+      file.seek(4);
+      return file.readInt();
+    } finally {
+      file.close();
+    }
+  }
+
+  private void writeRecordCount(int count) throws IOException {
+    RandomAccessFile file = new RandomAccessFile(logFile(), "rw");
+    try {
+      file.seek(4);
+      file.writeInt(count);
+    } finally {
+      file.close();
+    }
+  }
+
+  private static void assertFavorites(FavoriteStateStore store, long... ids) {
+    assertArrayEquals(sorted(ids), sorted(store.toArray()));
+  }
+
+  private static long[] sorted(long[] ids) {
+    long[] copy = ids.clone();
+    Arrays.sort(copy);
+    return copy;
+  }
+}
@@ -0,0 +1,100 @@
+package com.github.ivbaranov.mfb;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Display;
+
+/**
+ * Measures one button's animations for {@link FavoriteMetrics}. Created only for buttons with
+ * metrics, frames are observed with a Choreographer callback that is posted only while an
+ * animation runs.
+ */
+final class AnimationMetrics {
+  private static final long DEFAULT_FRAME_INTERVAL_NANOS = 1000000000L / 60;
+
+  private final MaterialFavoriteButton mButton;
+  private FavoriteMetrics mMetrics;
+  private long mStartNanos;
+  private long mLastFrameNanos;
+  private long mFrameIntervalNanos;
+  private int mFrames;
+  private int mDroppedFrames;
+  private boolean mRunning;
+  private final FrameTask mFrameTask = new FrameTask() {
+    @Override void doFrame(long frameTimeNanos) {
+      onFrame(frameTimeNanos);
+    }
+  };
+
+  AnimationMetrics(MaterialFavoriteButton button) {
+    mButton = button;
+  }
+
+  /**
+   * @param startNanos time of the state change that started the animation
+   */
+  void start(FavoriteMetrics metrics, long startNanos) {
+    mMetrics = metrics;
+    mStartNanos = startNanos;
+    mLastFrameNanos = 0;
+    mFrames = 0;
+    mDroppedFrames = 0;
+    mRunning = true;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      mFrameIntervalNanos = frameIntervalNanos();
+      mFrameTask.post();
+    } else {
+      mFrames = -1;
+      mDroppedFrames = -1;
+    }
+  }
+
+  void end(long expectedDurationMillis) {
+    if (!mRunning) {
+      return;
+    }
+    stop();
+    mMetrics.onAnimationEnd(mButton, System.nanoTime() - mStartNanos, expectedDurationMillis,
+        mFrames, mDroppedFrames);
+  }
+
+  void cancel() {
+    if (!mRunning) {
+      return;
+    }
+    stop();
+    mMetrics.onAnimationCancelled(mButton, System.nanoTime() - mStartNanos, mFrames);
+  }
+
+  private void stop() {
+    mRunning = false;
+    mFrameTask.cancel();
+  }
+
+  private void onFrame(long frameTimeNanos) {
+    if (!mRunning) {
+      return;
+    }
+    if (mFrames == 0) {
+      mMetrics.onFirstFrame(mButton, System.nanoTime() - mStartNanos);
+    } else {
+      long frames = Math.round((frameTimeNanos - mLastFrameNanos) / (double) mFrameIntervalNanos);
+      if (frames > 1) {
+        mDroppedFrames += frames - 1;
+      }
+    }
+    mFrames++;
+    mLastFrameNanos = frameTimeNanos;
+    mFrameTask.post();
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1) private long frameIntervalNanos() {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+      Display display = mButton.getDisplay();
+      if (display != null && display.getRefreshRate() > 0) {
+        return (long) (1000000000L / display.getRefreshRate());
+      }
+    }
+    return DEFAULT_FRAME_INTERVAL_NANOS;
+  }
+}
@@ -0,0 +1,147 @@
+package com.github.ivbaranov.mfb;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.AttributeSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of resolved {@link MaterialFavoriteButton} XML attributes.
+ *
+ * <p>Inflater reuses one {@link AttributeSet} instance for all views of a layout, so the key is
+ * built from what the attribute set declares instead of its identity: the raw values of the
+ * button's own attributes, the {@code style} attribute and the theme they are resolved against.
+ * Reading raw values is much cheaper than {@code obtainStyledAttributes}, so every button
+ * inflated from an already seen declaration skips attribute resolution completely.</p>
+ */
+final class AttributeCache {
+  private static final int MAX_ENTRIES = 64;
+
+  private static final Map<Key, Entry> sCache = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+    @Override protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  private AttributeCache() {
+  }
+
+  /**
+   * Resolved attributes of one declaration.
+   */
+  static final class Entry {
+    final FavoriteStyle style;
+    final boolean favorite;
+
+    Entry(FavoriteStyle style, boolean favorite) {
+      this.style = style;
+      this.favorite = favorite;
+    }
+  }
+
+  /**
+   * Returns key describing the declaration, to be used with {@link #get(Key)} and {@link
+   * #put(Key, Entry)}.
+   */
+  static Key key(Context context, AttributeSet attrs) {
+    int[] styleable = R.styleable.MaterialFavoriteButton;
+    int count = 0;
+    int[] names = new int[styleable.length];
+    String[] values = new String[styleable.length];
+    for (int i = 0, size = attrs.getAttributeCount(); i < size && count < names.length; i++) {
+      int name = attrs.getAttributeNameResource(i);
+      if (contains(styleable, name)) {
+        names[count] = name;
+        values[count] = attrs.getAttributeValue(i);
+        count++;
+      }
+    }
+    Resources.Theme theme = context.getTheme();
+    int themeId = theme != null ? System.identityHashCode(theme) : 0;
+    return new Key(themeId, attrs.getStyleAttribute(), count, names, values);
+  }
+
+  static Entry get(Key key) {
+    synchronized (sCache) {
+      return sCache.get(key);
+    }
+  }
+
+  static void put(Key key, Entry entry) {
+    synchronized (sCache) {
+      sCache.put(key, entry);
+    }
+  }
+
+  static void clear() {
+    synchronized (sCache) {
+      sCache.clear();
+    }
+  }
+
+  private static boolean contains(int[] array, int value) {
+    if (value == 0) {
+      return false;
+    }
+    for (int item : array) {
+      if (item == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static final class Key {
+    private final int mTheme;
+    private final int mStyle;
+    private final int mCount;
+    private final int[] mNames;
+    private final String[] mValues;
+    private final int mHashCode;
+
+    Key(int theme, int style, int count, int[] names, String[] values) {
+      mTheme = theme;
+      mStyle = style;
+      mCount = count;
+      mNames = names;
+      mValues = values;
+      int result = theme;
+      result = 31 * result + style;
+      for (int i = 0; i < count; i++) {
+        result = 31 * result + names[i];
+        result = 31 * result + (values[i] != null ? values[i].hashCode() : 0);
+      }
+      mHashCode = result;
+    }
+
+    @Override public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      if (mHashCode != key.mHashCode
+          || mTheme != key.mTheme
+          || mStyle != key.mStyle
+          || mCount != key.mCount) {
+        return false;
+      }
+      for (int i = 0; i < mCount; i++) {
+        if (mNames[i] != key.mNames[i]) {
+          return false;
+        }
+        if (mValues[i] == null ? key.mValues[i] != null : !mValues[i].equals(key.mValues[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override public int hashCode() {
+      return mHashCode;
+    }
+  }
+}
@@ -0,0 +1,302 @@
+package com.github.ivbaranov.mfb;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.ColorFilter;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.SparseArray;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide, bounded cache of resolved favorite button drawables.
+ *
+ * <p>Entries are keyed by resource id, screen density and theme and hold the drawable's {@link
+ * Drawable.ConstantState}, so every button gets its own drawable instance backed by shared
+ * bitmap state. Drawables that cannot apply a theme, like bitmaps, are keyed without it and are
+ * shared by all themes. The cache is cleared when the system asks to trim memory.</p>
+ *
+ * <p>Any configuration change that can select other resources, like orientation, locale, screen
+ * size, layout direction or night mode, evicts custom drawables, which may have such variants.
+ * The built-in icons only vary by density and are kept unless the density changes, so switching
+ * night mode does not decode them again.</p>
+ *
+ * <p>Color filters used to tint the built-in alpha mask icons are shared per color as well.</p>
+ */
+public final class DrawableCache {
+  private static final int MAX_ENTRIES = 64;
+  private static final int NO_THEME = 0;
+
+  private static final Map<Key, Drawable.ConstantState> sCache =
+      new LinkedHashMap<Key, Drawable.ConstantState>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(
+            Map.Entry<Key, Drawable.ConstantState> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      };
+  private static final SparseArray<ColorFilter> sColorFilters = new SparseArray<ColorFilter>();
+  private static final Key sLookupKey = new Key();
+  private static int sHitCount;
+  private static int sMissCount;
+  private static boolean sCallbacksRegistered;
+  private static Configuration sConfiguration;
+
+  private DrawableCache() {
+  }
+
+  /**
+   * Returns a new drawable instance for the resource, sharing constant state with previously
+   * resolved instances for the same density and theme.
+   */
+  static Drawable get(Context context, int resource) {
+    return get(context, resource, false);
+  }
+
+  /**
+   * Same as {@link #get(Context, int)} for a built-in icon, which has density variants only.
+   */
+  static Drawable getBuiltIn(Context context, int resource) {
+    return get(context, resource, true);
+  }
+
+  private static Drawable get(Context context, int resource, boolean builtIn) {
+    Resources resources = context.getResources();
+    Resources.Theme theme = context.getTheme();
+    int density = resources.getDisplayMetrics().densityDpi;
+    int themeId = theme != null ? System.identityHashCode(theme) : NO_THEME;
+
+    Drawable.ConstantState state;
+    synchronized (sCache) {
+      registerCallbacks(context);
+      sLookupKey.set(resource, density, NO_THEME);
+      state = sCache.get(sLookupKey);
+      if (state == null && themeId != NO_THEME) {
+        sLookupKey.set(resource, density, themeId);
+        state = sCache.get(sLookupKey);
+      }
+      if (state != null) {
+        sHitCount++;
+      } else {
+        sMissCount++;
+      }
+    }
+    if (state != null) {
+      return newDrawable(state, resources, theme);
+    }
+
+    Drawable drawable = loadDrawable(resources, theme, resource);
+    Drawable.ConstantState loadedState = drawable.getConstantState();
+    if (loadedState != null) {
+      int key = canApplyTheme(loadedState) ? themeId : NO_THEME;
+      synchronized (sCache) {
+        sCache.put(new Key(resource, density, key, builtIn), loadedState);
+      }
+    }
+    return drawable;
+  }
+
+  /**
+   * Returns true if drawables of the state can look different in another theme. Themes apply to
+   * drawables from API 21 only.
+   */
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  private static boolean canApplyTheme(Drawable.ConstantState state) {
+    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP && state.canApplyTheme();
+  }
+
+  /**
+   * Returns shared filter painting the opaque pixels of an alpha mask with the color.
+   */
+  static ColorFilter getColorFilter(int color) {
+    synchronized (sColorFilters) {
+      ColorFilter colorFilter = sColorFilters.get(color);
+      if (colorFilter == null) {
+        colorFilter = new PorterDuffColorFilter(color, PorterDuff.Mode.SRC_IN);
+        sColorFilters.put(color, colorFilter);
+      }
+      return colorFilter;
+    }
+  }
+
+  /**
+   * Returns how many lookups were served from the cache.
+   */
+  public static int getHitCount() {
+    synchronized (sCache) {
+      return sHitCount;
+    }
+  }
+
+  /**
+   * Returns how many lookups had to resolve the drawable from resources.
+   */
+  public static int getMissCount() {
+    synchronized (sCache) {
+      return sMissCount;
+    }
+  }
+
+  /**
+   * Returns number of cached drawable states.
+   */
+  public static int size() {
+    synchronized (sCache) {
+      return sCache.size();
+    }
+  }
+
+  /**
+   * Evicts all cached drawable states, color filters and icon atlases. Hit and miss counters are
+   * kept.
+   */
+  public static void clear() {
+    synchronized (sCache) {
+      sCache.clear();
+    }
+    synchronized (sColorFilters) {
+      sColorFilters.clear();
+    }
+    FavoriteAtlas.clear();
+  }
+
+  /**
+   * Resets hit and miss counters.
+   */
+  public static void resetCounters() {
+    synchronized (sCache) {
+      sHitCount = 0;
+      sMissCount = 0;
+    }
+  }
+
+  @SuppressWarnings("deprecation")
+  private static Drawable loadDrawable(Resources resources, Resources.Theme theme, int resource) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+      return resources.getDrawable(resource, theme);
+    }
+    return resources.getDrawable(resource);
+  }
+
+  @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+  private static Drawable newDrawable(Drawable.ConstantState state, Resources resources,
+      Resources.Theme theme) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+      return state.newDrawable(resources, theme);
+    }
+    return state.newDrawable(resources);
+  }
+
+  @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+  private static void registerCallbacks(Context context) {
+    if (sCallbacksRegistered || Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+      return;
+    }
+    sCallbacksRegistered = true;
+    Context applicationContext = context.getApplicationContext();
+    getConfigurationChanges(applicationContext.getResources().getConfiguration());
+    applicationContext.registerComponentCallbacks(new ComponentCallbacks2() {
+      @Override public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+          clear();
+        }
+      }
+
+      @Override public void onConfigurationChanged(Configuration newConfig) {
+        int changes = getConfigurationChanges(newConfig);
+        if (changes == 0) {
+          return;
+        }
+        // Attribute values are keyed by their raw strings, any qualifier may resolve them
+        // differently
+        AttributeCache.clear();
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1
+            || (changes & ActivityInfo.CONFIG_DENSITY) != 0) {
+          // Below API 17 density is not part of the configuration, any change may be one
+          clear();
+          Utils.resetDensity();
+        } else {
+          evictCustom();
+        }
+      }
+
+      @Override public void onLowMemory() {
+        clear();
+      }
+    });
+  }
+
+  /**
+   * Remembers the configuration and returns the {@link ActivityInfo} config bits that differ from
+   * the previous one. Every such bit is a resource qualifier, or like font scale changes how
+   * dimensions resolve.
+   */
+  private static int getConfigurationChanges(Configuration config) {
+    synchronized (sCache) {
+      int changes = sConfiguration != null ? sConfiguration.diff(config) : 0;
+      sConfiguration = new Configuration(config);
+      return changes;
+    }
+  }
+
+  /**
+   * Evicts drawables of custom resources, which may resolve to other variants now.
+   */
+  private static void evictCustom() {
+    synchronized (sCache) {
+      Iterator<Key> keys = sCache.keySet().iterator();
+      while (keys.hasNext()) {
+        if (!keys.next().mBuiltIn) {
+          keys.remove();
+        }
+      }
+    }
+  }
+
+  private static final class Key {
+    private int mResource;
+    private int mDensity;
+    private int mTheme;
+    // Not part of the identity, a resource is either built-in or not
+    private boolean mBuiltIn;
+
+    Key() {
+    }
+
+    Key(int resource, int density, int theme, boolean builtIn) {
+      set(resource, density, theme);
+      mBuiltIn = builtIn;
+    }
+
+    void set(int resource, int density, int theme) {
+      mResource = resource;
+      mDensity = density;
+      mTheme = theme;
+    }
+
+    @Override public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return mResource == key.mResource && mDensity == key.mDensity && mTheme == key.mTheme;
+    }
+
+    @Override public int hashCode() {
+      int result = mResource;
+      result = 31 * result + mDensity;
+      result = 31 * result + mTheme;
+      return result;
+    }
+  }
+}
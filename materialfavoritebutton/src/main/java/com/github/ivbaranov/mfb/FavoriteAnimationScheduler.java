@@ -0,0 +1,200 @@
+package com.github.ivbaranov.mfb;
+
+import android.graphics.Rect;
+import android.view.View;
+import java.util.ArrayList;
+
+/**
+ * Drives favorite animations of many buttons from one frame callback instead of an animator set
+ * per button, see {@link MaterialFavoriteButton#setAnimationScheduler}.
+ *
+ * <p>At most {@code maxRunningAnimations} buttons animate at once. Buttons over the limit, and
+ * buttons that are detached, not shown or scrolled out of their window, jump to the end state
+ * right away. A running animation whose button leaves the screen finishes the same way. {@link
+ * MaterialFavoriteButton.OnFavoriteAnimationEndListener} is called in every case. Durations are
+ * stretched by the system animator duration scale, like the button's own animators. The scheduler
+ * must be used from the main thread.</p>
+ */
+public final class FavoriteAnimationScheduler {
+  private final int mMaxRunningAnimations;
+  private final ArrayList<Animation> mRunning = new ArrayList<Animation>();
+  private final ArrayList<Animation> mPool = new ArrayList<Animation>();
+  private final Rect mVisibleRect = new Rect();
+  private final FrameTask mFrameTask = new FrameTask() {
+    @Override void doFrame(long frameTimeNanos) {
+      FavoriteAnimationScheduler.this.doFrame(frameTimeNanos / 1000000);
+    }
+  };
+
+  /**
+   * @param maxRunningAnimations number of buttons allowed to animate at once
+   */
+  public FavoriteAnimationScheduler(int maxRunningAnimations) {
+    mMaxRunningAnimations = maxRunningAnimations;
+  }
+
+  /**
+   * Returns number of running animations.
+   */
+  public int getRunningCount() {
+    return mRunning.size();
+  }
+
+  /**
+   * Starts animation of the button.
+   *
+   * @param fromAngle start rotation, already retargeted with {@link Utils#retargetAngle}
+   * @return false if the button should jump to the end state instead
+   */
+  boolean start(MaterialFavoriteButton button, boolean toFavorite, float fromAngle) {
+    if (mRunning.size() >= mMaxRunningAnimations || !isOnScreen(button)) {
+      return false;
+    }
+    Animation animation = mPool.isEmpty() ? new Animation() : mPool.remove(mPool.size() - 1);
+    animation.set(button, toFavorite, fromAngle);
+    mRunning.add(animation);
+    mFrameTask.post();
+    return true;
+  }
+
+  /**
+   * Stops animation of the button where it is, without notifying it.
+   */
+  void cancel(MaterialFavoriteButton button) {
+    for (int i = 0, size = mRunning.size(); i < size; i++) {
+      if (mRunning.get(i).mButton == button) {
+        recycle(removeAt(i));
+        return;
+      }
+    }
+  }
+
+  private void doFrame(long frameTimeMillis) {
+    int i = 0;
+    while (i < mRunning.size()) {
+      Animation animation = mRunning.get(i);
+      MaterialFavoriteButton button = animation.mButton;
+      boolean finished;
+      if (!isOnScreen(button)) {
+        animation.finish();
+        finished = true;
+      } else {
+        if (animation.mStartTime < 0) {
+          animation.mStartTime = frameTimeMillis;
+        }
+        // Styles and timelines are in unscaled time, the scale stretches the elapsed time instead
+        finished = animation.step(
+            (long) ((frameTimeMillis - animation.mStartTime) / animation.mDurationScale));
+      }
+      if (finished) {
+        // Removed before notifying, the end listener may start or cancel animations
+        recycle(removeAt(i));
+        button.onScheduledAnimationEnd();
+      } else {
+        i++;
+      }
+    }
+    if (!mRunning.isEmpty()) {
+      mFrameTask.post();
+    }
+  }
+
+  private boolean isOnScreen(View view) {
+    return view.getWindowToken() != null
+        && view.isShown()
+        && view.getGlobalVisibleRect(mVisibleRect);
+  }
+
+  private Animation removeAt(int index) {
+    int last = mRunning.size() - 1;
+    Animation animation = mRunning.get(index);
+    mRunning.set(index, mRunning.get(last));
+    mRunning.remove(last);
+    return animation;
+  }
+
+  private void recycle(Animation animation) {
+    animation.mButton = null;
+    mPool.add(animation);
+  }
+
+  /**
+   * Rotation then bounce of one button, same timing as the button's own animator graph.
+   */
+  private static final class Animation {
+    private MaterialFavoriteButton mButton;
+    private long mStartTime;
+    private float mStartAngle;
+    private float mEndAngle;
+    private int mRotationDuration;
+    private int mBounceDuration;
+    private float mDurationScale;
+    private float mStartBounce;
+    private boolean mBounceStarted;
+    private FavoriteTimeline mTimeline;
+
+    void set(MaterialFavoriteButton button, boolean toFavorite, float fromAngle) {
+      FavoriteStyle style = button.getStyle();
+      mButton = button;
+      mStartTime = -1;
+      mStartAngle = fromAngle;
+      mEndAngle = toFavorite ? style.getRotationAngle() : -style.getRotationAngle();
+      mRotationDuration = style.getRotationDuration();
+      mBounceDuration = style.getBounceDuration();
+      // A scale of 0 never gets here, buttons jump to the end state without animating then
+      float durationScale = Utils.getAnimatorDurationScale(button.getContext());
+      mDurationScale = durationScale > 0 ? durationScale : 1.0f;
+      mStartBounce = toFavorite ? 0.2f : 1.3f;
+      mBounceStarted = false;
+      mTimeline = style.isPrecomputedEasing()
+          ? FavoriteTimeline.get(mRotationDuration, mBounceDuration) : null;
+    }
+
+    /**
+     * Applies values for the elapsed time.
+     *
+     * @return true if the animation is finished
+     */
+    boolean step(long elapsed) {
+      MaterialFavoriteButton button = mButton;
+      if (elapsed < mRotationDuration) {
+        float fraction = mTimeline != null ? mTimeline.getRotation(elapsed)
+            : MaterialFavoriteButton.ACCELERATE_INTERPOLATOR
+                .getInterpolation(elapsed / (float) mRotationDuration);
+        button.setRotation(mStartAngle + (mEndAngle - mStartAngle) * fraction);
+        return false;
+      }
+      if (!mBounceStarted) {
+        mBounceStarted = true;
+        button.setRotation(mEndAngle);
+        button.onScheduledBounceStart();
+      }
+      long bounceElapsed = elapsed - mRotationDuration;
+      if (bounceElapsed < mBounceDuration) {
+        float fraction = mTimeline != null ? mTimeline.getBounce(elapsed)
+            : MaterialFavoriteButton.OVERSHOOT_INTERPOLATOR
+                .getInterpolation(bounceElapsed / (float) mBounceDuration);
+        float scale = mStartBounce + (1.0f - mStartBounce) * fraction;
+        button.setScaleX(scale);
+        button.setScaleY(scale);
+        return false;
+      }
+      button.setScaleX(1.0f);
+      button.setScaleY(1.0f);
+      return true;
+    }
+
+    /**
+     * Applies end values right away.
+     */
+    void finish() {
+      if (!mBounceStarted) {
+        mBounceStarted = true;
+        mButton.onScheduledBounceStart();
+      }
+      mButton.setRotation(mEndAngle);
+      mButton.setScaleX(1.0f);
+      mButton.setScaleY(1.0f);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.github.ivbaranov.mfb;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.SparseArray;
+
+/**
+ * The four built-in icons packed into one alpha-only bitmap per screen density. Every atlas
+ * drawable of a density draws a cell of the same bitmap, so all built-in icons on screen share a
+ * single texture and a state change only changes source coordinates. Alpha bitmaps are drawn with
+ * the paint color, which also tints them without a color filter.
+ */
+final class FavoriteAtlas {
+  private static final int[] RESOURCES = {
+      FavoriteStyle.FAVORITE_STAR_BLACK, FavoriteStyle.FAVORITE_STAR_BORDER_BLACK,
+      FavoriteStyle.FAVORITE_HEART_BLACK, FavoriteStyle.FAVORITE_HEART_BORDER_BLACK
+  };
+  // Transparent gutter keeps filtering of scaled cells from sampling the neighbours
+  private static final int GUTTER = 1;
+
+  private static final SparseArray<FavoriteAtlas> sAtlases = new SparseArray<FavoriteAtlas>();
+
+  private final Bitmap mBitmap;
+  private final int mCellSize;
+
+  private FavoriteAtlas(Resources resources) {
+    Bitmap[] icons = new Bitmap[RESOURCES.length];
+    int cellSize = 0;
+    for (int i = 0; i < RESOURCES.length; i++) {
+      icons[i] = BitmapFactory.decodeResource(resources, RESOURCES[i]);
+      cellSize = Math.max(cellSize, Math.max(icons[i].getWidth(), icons[i].getHeight()));
+    }
+    int stride = cellSize + GUTTER * 2;
+    Bitmap atlas = Bitmap.createBitmap(stride * RESOURCES.length, stride, Bitmap.Config.ARGB_8888);
+    Canvas canvas = new Canvas(atlas);
+    for (int i = 0; i < icons.length; i++) {
+      canvas.drawBitmap(icons[i], i * stride + GUTTER, GUTTER, null);
+      icons[i].recycle();
+    }
+    mBitmap = atlas.extractAlpha();
+    atlas.recycle();
+    mCellSize = cellSize;
+  }
+
+  /**
+   * Returns the atlas for the density of the resources, built on first use.
+   */
+  static FavoriteAtlas get(Resources resources) {
+    int density = resources.getDisplayMetrics().densityDpi;
+    synchronized (sAtlases) {
+      FavoriteAtlas atlas = sAtlases.get(density);
+      if (atlas == null) {
+        atlas = new FavoriteAtlas(resources);
+        sAtlases.put(density, atlas);
+      }
+      return atlas;
+    }
+  }
+
+  /**
+   * Drops atlases, drawables already created keep their bitmap.
+   */
+  static void clear() {
+    synchronized (sAtlases) {
+      sAtlases.clear();
+    }
+  }
+
+  /**
+   * Returns drawable of one built-in icon.
+   *
+   * @param type {@link MaterialFavoriteButton#STYLE_STAR} or {@link
+   * MaterialFavoriteButton#STYLE_HEART}
+   * @param filled true for the favorite shape, false for its border
+   */
+  Drawable newDrawable(int type, boolean filled, int color) {
+    int index = (type == MaterialFavoriteButton.STYLE_HEART ? 2 : 0) + (filled ? 0 : 1);
+    int left = index * (mCellSize + GUTTER * 2) + GUTTER;
+    return new AtlasDrawable(mBitmap, new Rect(left, GUTTER, left + mCellSize, GUTTER + mCellSize),
+        color);
+  }
+
+  /**
+   * Draws a cell of the atlas.
+   */
+  static final class AtlasDrawable extends Drawable {
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Bitmap mBitmap;
+    private final Rect mSource;
+
+    AtlasDrawable(Bitmap bitmap, Rect source, int color) {
+      mBitmap = bitmap;
+      mSource = source;
+      mPaint.setColor(color);
+    }
+
+    @Override public void draw(Canvas canvas) {
+      canvas.drawBitmap(mBitmap, mSource, getBounds(), mPaint);
+    }
+
+    @Override public int getIntrinsicWidth() {
+      return mSource.width();
+    }
+
+    @Override public int getIntrinsicHeight() {
+      return mSource.height();
+    }
+
+    @Override public void setAlpha(int alpha) {
+      mPaint.setAlpha(alpha);
+      invalidateSelf();
+    }
+
+    @Override public void setColorFilter(ColorFilter colorFilter) {
+      mPaint.setColorFilter(colorFilter);
+      invalidateSelf();
+    }
+
+    @Override public int getOpacity() {
+      return PixelFormat.TRANSLUCENT;
+    }
+  }
+}
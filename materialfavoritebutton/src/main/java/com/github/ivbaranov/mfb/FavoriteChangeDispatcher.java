@@ -0,0 +1,244 @@
+package com.github.ivbaranov.mfb;
+
+import android.os.Handler;
+import java.util.Arrays;
+
+/**
+ * Collects favorite changes of many buttons and delivers them to one listener as a batch, once
+ * per frame or after a debounce window. Changes that cancel each other out before the batch is
+ * delivered, like a quick double tap, are dropped.
+ *
+ * <p>Attach it with {@link MaterialFavoriteButton#setFavoriteChangeDispatcher}. Changes made with
+ * {@link MaterialFavoriteButton#setFavoriteSuppressListener(boolean)} are not collected. The
+ * dispatcher must be used from the main thread.</p>
+ */
+public final class FavoriteChangeDispatcher {
+  /**
+   * Interface definition for a callback to be invoked with a batch of favorite changes.
+   */
+  public interface OnFavoriteBatchListener {
+    /**
+     * Called with the changes collected since the previous batch.
+     *
+     * @param batch changed buttons and their new states, valid only during this call
+     */
+    void onFavoritesChanged(Batch batch);
+  }
+
+  private final OnFavoriteBatchListener mListener;
+  private final long mDebounceMillis;
+  private final Handler mHandler = FrameTask.getMainHandler();
+  private final Runnable mFlushRunnable = new Runnable() {
+    @Override public void run() {
+      flush();
+    }
+  };
+  private final FrameTask mFrameTask;
+
+  private Batch mPending = new Batch();
+  private Batch mDispatching = new Batch();
+  private boolean mScheduled;
+
+  /**
+   * Creates dispatcher delivering changes once per frame.
+   */
+  public FavoriteChangeDispatcher(OnFavoriteBatchListener listener) {
+    this(listener, 0);
+  }
+
+  /**
+   * Creates dispatcher delivering changes when no new change arrived for the debounce window.
+   *
+   * @param debounceMillis debounce window, 0 to deliver once per frame
+   */
+  public FavoriteChangeDispatcher(OnFavoriteBatchListener listener, long debounceMillis) {
+    this(listener, debounceMillis, null);
+  }
+
+  /**
+   * @param frameTask task flushing once per frame, null for the one posting to the display frame
+   */
+  FavoriteChangeDispatcher(OnFavoriteBatchListener listener, long debounceMillis,
+      FrameTask frameTask) {
+    mListener = listener;
+    mDebounceMillis = debounceMillis;
+    mFrameTask = frameTask != null ? frameTask : new FrameTask() {
+      @Override void doFrame(long frameTimeNanos) {
+        flush();
+      }
+    };
+  }
+
+  void onFavoriteChanged(MaterialFavoriteButton button, boolean favorite) {
+    FavoriteStateStore store = button.getStateStore();
+    onFavoriteChanged(button, store, store != null ? button.getBoundItemId() : 0, favorite);
+  }
+
+  /**
+   * Records a change of an item the button may no longer be bound to, like a rolled back commit.
+   */
+  void onFavoriteChanged(MaterialFavoriteButton button, FavoriteStateStore store, long itemId,
+      boolean favorite) {
+    mPending.record(button, store, itemId, favorite);
+    schedule();
+  }
+
+  /**
+   * Delivers collected changes right away.
+   */
+  public void flush() {
+    cancelScheduled();
+    Batch batch = mPending;
+    mPending = mDispatching;
+    mDispatching = batch;
+    batch.dropUnchanged();
+    try {
+      if (batch.size() > 0) {
+        mListener.onFavoritesChanged(batch);
+      }
+    } finally {
+      batch.clear();
+    }
+  }
+
+  private void schedule() {
+    if (mDebounceMillis > 0) {
+      mHandler.removeCallbacks(mFlushRunnable);
+      mHandler.postDelayed(mFlushRunnable, mDebounceMillis);
+      mScheduled = true;
+    } else if (!mScheduled) {
+      mScheduled = true;
+      mFrameTask.post();
+    }
+  }
+
+  private void cancelScheduled() {
+    if (!mScheduled) {
+      return;
+    }
+    mScheduled = false;
+    mHandler.removeCallbacks(mFlushRunnable);
+    mFrameTask.cancel();
+  }
+
+  /**
+   * Favorite changes delivered together. Bound buttons also report the id of the item they were
+   * bound to when the change happened, see {@link MaterialFavoriteButton#bind}.
+   */
+  public static final class Batch {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private MaterialFavoriteButton[] mButtons = new MaterialFavoriteButton[INITIAL_CAPACITY];
+    private FavoriteStateStore[] mStores = new FavoriteStateStore[INITIAL_CAPACITY];
+    private long[] mItemIds = new long[INITIAL_CAPACITY];
+    private boolean[] mInitialStates = new boolean[INITIAL_CAPACITY];
+    private boolean[] mStates = new boolean[INITIAL_CAPACITY];
+    // Previous entry of the same button, entries of one button are rebinds to other items
+    private int[] mPrevious = new int[INITIAL_CAPACITY];
+    private int mSize;
+
+    Batch() {
+    }
+
+    /**
+     * Returns number of changes.
+     */
+    public int size() {
+      return mSize;
+    }
+
+    /**
+     * Returns the button that changed.
+     */
+    public MaterialFavoriteButton getButton(int index) {
+      return mButtons[index];
+    }
+
+    /**
+     * Returns new favorite state.
+     */
+    public boolean isFavorite(int index) {
+      return mStates[index];
+    }
+
+    /**
+     * Returns true if the button was bound to an item.
+     */
+    public boolean hasItemId(int index) {
+      return mStores[index] != null;
+    }
+
+    /**
+     * Returns id of the item the button was bound to, see {@link #hasItemId(int)}.
+     */
+    public long getItemId(int index) {
+      return mItemIds[index];
+    }
+
+    /**
+     * Returns the store the button was bound to, or null.
+     */
+    public FavoriteStateStore getStateStore(int index) {
+      return mStores[index];
+    }
+
+    void record(MaterialFavoriteButton button, FavoriteStateStore store, long itemId,
+        boolean favorite) {
+      // The button remembers its latest entry, so recording stays O(1) for bulk changes
+      int latest = button.mBatch == this ? button.mBatchIndex : -1;
+      if (latest >= mSize || (latest >= 0 && mButtons[latest] != button)) {
+        latest = -1;
+      }
+      for (int i = latest; i >= 0; i = mPrevious[i]) {
+        if (mStores[i] == store && mItemIds[i] == itemId) {
+          mStates[i] = favorite;
+          return;
+        }
+      }
+      if (mSize == mButtons.length) {
+        int capacity = mSize * 2;
+        mButtons = Arrays.copyOf(mButtons, capacity);
+        mStores = Arrays.copyOf(mStores, capacity);
+        mItemIds = Arrays.copyOf(mItemIds, capacity);
+        mInitialStates = Arrays.copyOf(mInitialStates, capacity);
+        mStates = Arrays.copyOf(mStates, capacity);
+        mPrevious = Arrays.copyOf(mPrevious, capacity);
+      }
+      button.mBatch = this;
+      button.mBatchIndex = mSize;
+      mPrevious[mSize] = latest;
+      mButtons[mSize] = button;
+      mStores[mSize] = store;
+      mItemIds[mSize] = itemId;
+      mInitialStates[mSize] = !favorite;
+      mStates[mSize] = favorite;
+      mSize++;
+    }
+
+    /**
+     * Compacts the batch for delivery. Entries are not looked up afterwards, only cleared.
+     */
+    void dropUnchanged() {
+      int size = 0;
+      for (int i = 0; i < mSize; i++) {
+        if (mStates[i] != mInitialStates[i]) {
+          mButtons[size] = mButtons[i];
+          mStores[size] = mStores[i];
+          mItemIds[size] = mItemIds[i];
+          mInitialStates[size] = mInitialStates[i];
+          mStates[size] = mStates[i];
+          size++;
+        }
+      }
+      Arrays.fill(mButtons, size, mSize, null);
+      Arrays.fill(mStores, size, mSize, null);
+      mSize = size;
+    }
+
+    void clear() {
+      Arrays.fill(mButtons, 0, mSize, null);
+      Arrays.fill(mStores, 0, mSize, null);
+      mSize = 0;
+    }
+  }
+}
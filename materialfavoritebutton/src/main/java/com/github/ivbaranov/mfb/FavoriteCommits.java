@@ -0,0 +1,194 @@
+package com.github.ivbaranov.mfb;
+
+import android.os.Looper;
+import java.util.HashMap;
+
+/**
+ * Commits in flight, one per item: an item of a {@link FavoriteStateStore}, or an unbound button.
+ * Commit state belongs to the item rather than to the button showing it, so rebinding a button
+ * neither starts a second commit of an item in flight nor drops the rollback of a failed one.
+ * Items are tracked only while a commit is in flight. Used on the main thread only.
+ */
+final class FavoriteCommits {
+  private static final HashMap<Key, Item> sItems = new HashMap<Key, Item>();
+  private static final Key sLookupKey = new Key();
+
+  private FavoriteCommits() {
+  }
+
+  /**
+   * Called after the user changed the item of the button, commits the change unless a commit of
+   * the item is in flight already. Changes made meanwhile are committed when it completes.
+   */
+  static void onChanged(MaterialFavoriteButton button, FavoriteCommitter committer,
+      boolean favorite) {
+    Item item = get(button);
+    if (item != null) {
+      item.mButton = button;
+      item.mCommitter = committer;
+      item.mLatest = favorite;
+      return;
+    }
+    FavoriteStateStore store = button.getStateStore();
+    Key key = store != null ? new Key(store, button.getBoundItemId(), null)
+        : new Key(null, 0, button);
+    item = new Item(key, button, committer, !favorite, favorite);
+    sItems.put(key, item);
+    commit(item);
+  }
+
+  /**
+   * Called after a change of the item of the button that is taken as committed.
+   */
+  static void onSettled(MaterialFavoriteButton button, boolean favorite) {
+    Item item = get(button);
+    if (item != null) {
+      // Still in flight, its result decides whether the settled state has to be committed again
+      item.mCommitted = favorite;
+      item.mLatest = favorite;
+    }
+  }
+
+  /**
+   * Returns true while a commit of the item of the button is in flight.
+   */
+  static boolean isPending(MaterialFavoriteButton button) {
+    return get(button) != null;
+  }
+
+  private static Item get(MaterialFavoriteButton button) {
+    if (sItems.isEmpty()) {
+      return null;
+    }
+    FavoriteStateStore store = button.getStateStore();
+    if (store != null) {
+      sLookupKey.set(store, button.getBoundItemId(), null);
+    } else {
+      sLookupKey.set(null, 0, button);
+    }
+    Item item = sItems.get(sLookupKey);
+    sLookupKey.set(null, 0, null);
+    return item;
+  }
+
+  private static void commit(Item item) {
+    Key key = item.mKey;
+    item.mCommitter.commit(item.mButton, key.mItemId, item.mLatest,
+        new Callback(item, item.mLatest));
+  }
+
+  private static void onResult(Item item, boolean target, boolean committed) {
+    if (committed) {
+      item.mCommitted = target;
+      if (item.mLatest != item.mCommitted) {
+        commit(item);
+        return;
+      }
+      sItems.remove(item.mKey);
+      return;
+    }
+    sItems.remove(item.mKey);
+    if (item.mLatest != item.mCommitted) {
+      // The only state that can differ from the committed one is the state that failed
+      Key key = item.mKey;
+      item.mButton.rollbackFavorite(key.mStore, key.mItemId, item.mCommitted);
+    }
+  }
+
+  /**
+   * Identity of an item: a store and an id, or an unbound button.
+   */
+  private static final class Key {
+    FavoriteStateStore mStore;
+    long mItemId;
+    MaterialFavoriteButton mButton;
+
+    Key() {
+    }
+
+    Key(FavoriteStateStore store, long itemId, MaterialFavoriteButton button) {
+      set(store, itemId, button);
+    }
+
+    void set(FavoriteStateStore store, long itemId, MaterialFavoriteButton button) {
+      mStore = store;
+      mItemId = itemId;
+      mButton = button;
+    }
+
+    @Override public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return mStore == key.mStore && mItemId == key.mItemId && mButton == key.mButton;
+    }
+
+    @Override public int hashCode() {
+      int result = System.identityHashCode(mStore);
+      result = 31 * result + (int) (mItemId ^ (mItemId >>> 32));
+      return 31 * result + System.identityHashCode(mButton);
+    }
+  }
+
+  /**
+   * Commit state of one item.
+   */
+  private static final class Item {
+    final Key mKey;
+    // The button that changed the item last, it may be bound to another item by now
+    MaterialFavoriteButton mButton;
+    FavoriteCommitter mCommitter;
+    boolean mCommitted;
+    boolean mLatest;
+
+    Item(Key key, MaterialFavoriteButton button, FavoriteCommitter committer, boolean committed,
+        boolean latest) {
+      mKey = key;
+      mButton = button;
+      mCommitter = committer;
+      mCommitted = committed;
+      mLatest = latest;
+    }
+  }
+
+  /**
+   * Completion of one commit, delivered on the main thread.
+   */
+  private static final class Callback implements FavoriteCommitter.Callback, Runnable {
+    private final Item mItem;
+    private final boolean mTarget;
+    private boolean mCommitted;
+    private boolean mCompleted;
+
+    Callback(Item item, boolean target) {
+      mItem = item;
+      mTarget = target;
+    }
+
+    @Override public void onCommitted() {
+      complete(true);
+    }
+
+    @Override public void onFailed() {
+      complete(false);
+    }
+
+    private synchronized void complete(boolean committed) {
+      if (mCompleted) {
+        return;
+      }
+      mCompleted = true;
+      mCommitted = committed;
+      if (Looper.myLooper() == Looper.getMainLooper()) {
+        run();
+      } else {
+        FrameTask.getMainHandler().post(this);
+      }
+    }
+
+    @Override public void run() {
+      onResult(mItem, mTarget, mCommitted);
+    }
+  }
+}
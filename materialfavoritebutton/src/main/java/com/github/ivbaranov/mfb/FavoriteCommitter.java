@@ -0,0 +1,38 @@
+package com.github.ivbaranov.mfb;
+
+/**
+ * Commits favorite changes of a button to a backend, see {@link
+ * MaterialFavoriteButton#setFavoriteCommitter(FavoriteCommitter)}.
+ *
+ * <p>The button shows the change right away and calls {@link #commit} with the latest state the
+ * user asked for. Only one commit per item is in flight at a time, even across rebinds: taps made
+ * meanwhile are merged, and when the commit completes the latest state is committed if it differs
+ * from the committed one. A failed commit puts the item back to its last committed state without
+ * animation and without calling {@link MaterialFavoriteButton.OnFavoriteChangeListener}.</p>
+ */
+public interface FavoriteCommitter {
+  /**
+   * Called on the main thread to commit a favorite state.
+   *
+   * @param button the button that changed the item last, it may be bound to another item by now
+   * @param itemId id of the item to commit, 0 for an unbound button
+   * @param favorite the state to commit
+   * @param callback to be completed exactly once, from any thread
+   */
+  void commit(MaterialFavoriteButton button, long itemId, boolean favorite, Callback callback);
+
+  /**
+   * Completion of one commit.
+   */
+  interface Callback {
+    /**
+     * Called when the state was committed.
+     */
+    void onCommitted();
+
+    /**
+     * Called when the commit failed, the item rolls back to its last committed state.
+     */
+    void onFailed();
+  }
+}
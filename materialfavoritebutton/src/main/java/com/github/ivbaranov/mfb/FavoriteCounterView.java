@@ -0,0 +1,236 @@
+package com.github.ivbaranov.mfb;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+/**
+ * Favorite count shown next to a {@link MaterialFavoriteButton}, see {@link
+ * MaterialFavoriteButton#setCounterView(FavoriteCounterView)}. The button adds or removes one in
+ * the same call that changes its state, before listeners are called.
+ *
+ * <p>Digits are formatted into a preallocated buffer and measured with glyph widths cached per
+ * text size, so changing the count allocates nothing. The view is as wide as the widest digit
+ * times the longest count shown so far: a change only invalidates the digits and requests layout
+ * only when the count gets longer.</p>
+ */
+public class FavoriteCounterView extends View {
+  private static final String DIGITS = "0123456789";
+  // Long enough for Integer.MIN_VALUE
+  private static final int MAX_CHARS = 11;
+  private static final int DEFAULT_TEXT_SIZE = 14;
+  private static final int DEFAULT_TEXT_COLOR = Color.BLACK;
+
+  private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint.FontMetrics mFontMetrics = new Paint.FontMetrics();
+  private final char[] mChars = new char[MAX_CHARS];
+  private final float[] mGlyphWidths = new float[DIGITS.length()];
+  private float mMinusWidth;
+  private float mMaxGlyphWidth;
+  private int mCount;
+  private int mStart = MAX_CHARS;
+  private float mTextWidth;
+  private int mReservedChars = 1;
+
+  public FavoriteCounterView(Context context) {
+    this(context, null);
+  }
+
+  public FavoriteCounterView(Context context, AttributeSet attrs) {
+    this(context, attrs, 0);
+  }
+
+  public FavoriteCounterView(Context context, AttributeSet attrs, int defStyleAttr) {
+    super(context, attrs, defStyleAttr);
+    float textSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, DEFAULT_TEXT_SIZE,
+        getResources().getDisplayMetrics());
+    int textColor = DEFAULT_TEXT_COLOR;
+    int count = 0;
+    if (attrs != null) {
+      TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.FavoriteCounterView);
+      try {
+        textSize = a.getDimension(R.styleable.FavoriteCounterView_android_textSize, textSize);
+        textColor = a.getColor(R.styleable.FavoriteCounterView_android_textColor, textColor);
+        count = a.getInt(R.styleable.FavoriteCounterView_mfb_count, count);
+      } finally {
+        a.recycle();
+      }
+    }
+    mPaint.setColor(textColor);
+    mPaint.setTextSize(textSize);
+    updateGlyphs();
+    mCount = count;
+    formatCount();
+    mReservedChars = MAX_CHARS - mStart;
+  }
+
+  public int getCount() {
+    return mCount;
+  }
+
+  /**
+   * Set the count shown.
+   */
+  public void setCount(int count) {
+    if (mCount == count) {
+      return;
+    }
+    float oldWidth = mTextWidth;
+    mCount = count;
+    formatCount();
+    int length = MAX_CHARS - mStart;
+    if (length > mReservedChars) {
+      mReservedChars = length;
+      requestLayout();
+    }
+    invalidateDigits(Math.max(oldWidth, mTextWidth));
+  }
+
+  public void setTextColor(int color) {
+    if (mPaint.getColor() != color) {
+      mPaint.setColor(color);
+      invalidateDigits(mTextWidth);
+    }
+  }
+
+  /**
+   * Set text size in pixels.
+   */
+  public void setTextSize(float size) {
+    if (mPaint.getTextSize() != size) {
+      mPaint.setTextSize(size);
+      updateGlyphs();
+      formatCount();
+      requestLayout();
+      invalidate();
+    }
+  }
+
+  public void setTypeface(Typeface typeface) {
+    if (mPaint.getTypeface() != typeface) {
+      mPaint.setTypeface(typeface);
+      updateGlyphs();
+      formatCount();
+      requestLayout();
+      invalidate();
+    }
+  }
+
+  /**
+   * Adds or removes one for a change of the attached button.
+   */
+  void onFavoriteChanged(boolean favorite) {
+    setCount(favorite ? mCount + 1 : mCount - 1);
+  }
+
+  private void updateGlyphs() {
+    mPaint.getTextWidths(DIGITS, mGlyphWidths);
+    mMinusWidth = mPaint.measureText("-");
+    float max = mMinusWidth;
+    for (float width : mGlyphWidths) {
+      max = Math.max(max, width);
+    }
+    mMaxGlyphWidth = max;
+    mPaint.getFontMetrics(mFontMetrics);
+  }
+
+  /**
+   * Writes the digits to the end of the buffer and sums their cached widths.
+   */
+  private void formatCount() {
+    long value = Math.abs((long) mCount);
+    int start = MAX_CHARS;
+    float width = 0;
+    do {
+      int digit = (int) (value % 10);
+      mChars[--start] = (char) ('0' + digit);
+      width += mGlyphWidths[digit];
+      value /= 10;
+    } while (value != 0);
+    if (mCount < 0) {
+      mChars[--start] = '-';
+      width += mMinusWidth;
+    }
+    mStart = start;
+    mTextWidth = width;
+  }
+
+  @SuppressWarnings("deprecation")
+  private void invalidateDigits(float width) {
+    // Dirty rects are ignored by hardware rendering from API 28, they still save software drawing
+    int left = getPaddingLeft();
+    invalidate(left, getPaddingTop(), left + (int) Math.ceil(width),
+        getHeight() - getPaddingBottom());
+  }
+
+  @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    int width = getPaddingLeft() + getPaddingRight()
+        + (int) Math.ceil(mMaxGlyphWidth * mReservedChars);
+    int height = getPaddingTop() + getPaddingBottom()
+        + (int) Math.ceil(mFontMetrics.descent - mFontMetrics.ascent);
+    setMeasuredDimension(
+        resolveSize(Math.max(width, getSuggestedMinimumWidth()), widthMeasureSpec),
+        resolveSize(Math.max(height, getSuggestedMinimumHeight()), heightMeasureSpec));
+  }
+
+  @Override protected void onDraw(Canvas canvas) {
+    int top = getPaddingTop();
+    float textHeight = mFontMetrics.descent - mFontMetrics.ascent;
+    float baseline =
+        top + (getHeight() - top - getPaddingBottom() - textHeight) / 2 - mFontMetrics.ascent;
+    canvas.drawText(mChars, mStart, MAX_CHARS - mStart, getPaddingLeft(), baseline, mPaint);
+  }
+
+  @Override protected Parcelable onSaveInstanceState() {
+    SavedState savedState = new SavedState(super.onSaveInstanceState());
+    savedState.mCount = mCount;
+    return savedState;
+  }
+
+  @Override protected void onRestoreInstanceState(Parcelable state) {
+    if (!(state instanceof SavedState)) {
+      super.onRestoreInstanceState(state);
+      return;
+    }
+    SavedState savedState = (SavedState) state;
+    super.onRestoreInstanceState(savedState.getSuperState());
+    setCount(savedState.mCount);
+  }
+
+  static class SavedState extends BaseSavedState {
+    int mCount;
+
+    SavedState(Parcelable superState) {
+      super(superState);
+    }
+
+    private SavedState(Parcel in) {
+      super(in);
+      mCount = in.readInt();
+    }
+
+    @Override public void writeToParcel(Parcel out, int flags) {
+      super.writeToParcel(out, flags);
+      out.writeInt(mCount);
+    }
+
+    public static final Parcelable.Creator<SavedState> CREATOR =
+        new Parcelable.Creator<SavedState>() {
+          @Override public SavedState createFromParcel(Parcel in) {
+            return new SavedState(in);
+          }
+
+          @Override public SavedState[] newArray(int size) {
+            return new SavedState[size];
+          }
+        };
+  }
+}
@@ -0,0 +1,250 @@
+package com.github.ivbaranov.mfb;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.view.animation.LinearInterpolator;
+
+/**
+ * Favorite star or heart without a view, for rows and grid cells that draw many items. It looks
+ * and animates like {@link MaterialFavoriteButton} with the same {@link FavoriteStyle}: the style
+ * size is the intrinsic size and the style padding insets the icon.
+ *
+ * <p>The host draws it and handles taps:</p>
+ *
+ * <pre>
+ * if (event.getAction() == MotionEvent.ACTION_UP
+ *     &amp;&amp; favorite.hitTest(event.getX(), event.getY())) {
+ *   favorite.toggleFavorite();
+ * }
+ * </pre>
+ *
+ * <p>The host must be the drawable's {@link Drawable.Callback}, as a view background or with
+ * {@link #setCallback}, to be invalidated while the drawable animates.</p>
+ */
+public class FavoriteDrawable extends Drawable {
+  private final Context mContext;
+  private final FavoriteStyle mStyle;
+  private final int mSize;
+  private final int mPadding;
+  private final Drawable mFavoriteDrawable;
+  private final Drawable mNotFavoriteDrawable;
+  private final FavoriteTimeline mTimeline;
+  private boolean mFavorite;
+
+  private ValueAnimator mAnimator;
+  private boolean mToFavorite;
+  private float mStartAngle;
+  private float mRotation;
+  private float mScale = 1.0f;
+  private boolean mShowTarget;
+
+  public FavoriteDrawable(Context context, FavoriteStyle style) {
+    this(context, style, false);
+  }
+
+  public FavoriteDrawable(Context context, FavoriteStyle style, boolean favorite) {
+    Resources resources = context.getResources();
+    Context applicationContext = context.getApplicationContext();
+    mContext = applicationContext != null ? applicationContext : context;
+    mStyle = style;
+    mSize = Utils.dpToPx(style.getSize(), resources);
+    mPadding = Utils.dpToPx(style.getPadding(), resources);
+    mFavoriteDrawable = MaterialFavoriteButton.createDrawable(context, style, true);
+    mNotFavoriteDrawable = MaterialFavoriteButton.createDrawable(context, style, false);
+    mTimeline = style.isPrecomputedEasing()
+        ? FavoriteTimeline.get(style.getRotationDuration(), style.getBounceDuration()) : null;
+    mFavorite = favorite;
+    mShowTarget = true;
+  }
+
+  public FavoriteStyle getStyle() {
+    return mStyle;
+  }
+
+  public boolean isFavorite() {
+    return mFavorite;
+  }
+
+  /**
+   * Changes the favorite state without animation.
+   */
+  public void setFavorite(boolean favorite) {
+    cancelAnimation();
+    if (mFavorite != favorite) {
+      mFavorite = favorite;
+      invalidateSelf();
+    }
+  }
+
+  /**
+   * Changes the favorite state with animation.
+   */
+  public void setFavoriteAnimated(boolean favorite) {
+    if (mFavorite == favorite) {
+      return;
+    }
+    mFavorite = favorite;
+    if (MaterialFavoriteButton.areAnimationsEnabled(mContext)) {
+      animate(favorite);
+    } else {
+      invalidateSelf();
+    }
+  }
+
+  /**
+   * Toggles the favorite state, animated as configured by the style.
+   */
+  public void toggleFavorite() {
+    boolean animate = mFavorite ? mStyle.isAnimateUnfavorite() : mStyle.isAnimateFavorite();
+    if (animate) {
+      setFavoriteAnimated(!mFavorite);
+    } else {
+      setFavorite(!mFavorite);
+    }
+  }
+
+  /**
+   * Returns true if the point, in the coordinates the bounds are set in, hits the drawable. The
+   * style padding counts as part of the touch target, like it does for the button.
+   */
+  public boolean hitTest(float x, float y) {
+    Rect bounds = getBounds();
+    return x >= bounds.left && x < bounds.right && y >= bounds.top && y < bounds.bottom;
+  }
+
+  /**
+   * Returns true while the drawable animates.
+   */
+  public boolean isRunning() {
+    return mAnimator != null && mAnimator.isRunning();
+  }
+
+  private void animate(boolean toFavorite) {
+    float fromAngle = 0;
+    if (isRunning()) {
+      int angle = mStyle.getRotationAngle();
+      fromAngle = Utils.retargetAngle(mRotation, toFavorite ? angle : -angle);
+      mAnimator.cancel();
+    }
+    if (mAnimator == null) {
+      mAnimator = ValueAnimator.ofFloat(0, 1);
+      mAnimator.setDuration(mStyle.getRotationDuration() + mStyle.getBounceDuration());
+      mAnimator.setInterpolator(new LinearInterpolator());
+      mAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+        @Override public void onAnimationUpdate(ValueAnimator animation) {
+          step(animation.getAnimatedFraction());
+        }
+      });
+      mAnimator.addListener(new AnimatorListenerAdapter() {
+        @Override public void onAnimationEnd(Animator animation) {
+          step(1.0f);
+          // Full turns end where they started, drop them so resting frames skip the transform
+          mRotation %= 360;
+        }
+      });
+    }
+    mToFavorite = toFavorite;
+    mStartAngle = fromAngle;
+    // The old state stays visible while rotating, like the button swaps images at bounce start
+    mShowTarget = false;
+    mAnimator.start();
+  }
+
+  private void cancelAnimation() {
+    if (isRunning()) {
+      mAnimator.cancel();
+    }
+    mRotation = 0;
+    mScale = 1.0f;
+    mShowTarget = true;
+  }
+
+  /**
+   * Applies rotation and bounce for the fraction of the whole animation, same timing and
+   * interpolators as the button's animator graph.
+   */
+  private void step(float fraction) {
+    int rotationDuration = mStyle.getRotationDuration();
+    int bounceDuration = mStyle.getBounceDuration();
+    float endAngle = mToFavorite ? mStyle.getRotationAngle() : -mStyle.getRotationAngle();
+    float elapsed = fraction * (rotationDuration + bounceDuration);
+    if (elapsed < rotationDuration) {
+      float rotation = mTimeline != null ? mTimeline.getRotation(elapsed)
+          : MaterialFavoriteButton.ACCELERATE_INTERPOLATOR
+              .getInterpolation(elapsed / rotationDuration);
+      mRotation = mStartAngle + (endAngle - mStartAngle) * rotation;
+      mScale = 1.0f;
+    } else {
+      mRotation = endAngle;
+      mShowTarget = true;
+      float startBounce = mToFavorite ? 0.2f : 1.3f;
+      float bounce;
+      if (mTimeline != null) {
+        bounce = mTimeline.getBounce(elapsed);
+      } else if (bounceDuration > 0) {
+        bounce = MaterialFavoriteButton.OVERSHOOT_INTERPOLATOR
+            .getInterpolation(Math.min(1.0f, (elapsed - rotationDuration) / bounceDuration));
+      } else {
+        bounce = 1.0f;
+      }
+      mScale = startBounce + (1.0f - startBounce) * bounce;
+    }
+    invalidateSelf();
+  }
+
+  @Override public void draw(Canvas canvas) {
+    boolean favorite = mShowTarget ? mFavorite : !mFavorite;
+    Drawable drawable = favorite ? mFavoriteDrawable : mNotFavoriteDrawable;
+    Rect bounds = getBounds();
+    if (mRotation == 0 && mScale == 1.0f) {
+      drawable.draw(canvas);
+      return;
+    }
+    int saveCount = canvas.save();
+    float centerX = bounds.exactCenterX();
+    float centerY = bounds.exactCenterY();
+    canvas.rotate(mRotation, centerX, centerY);
+    canvas.scale(mScale, mScale, centerX, centerY);
+    drawable.draw(canvas);
+    canvas.restoreToCount(saveCount);
+  }
+
+  @Override protected void onBoundsChange(Rect bounds) {
+    mFavoriteDrawable.setBounds(bounds.left + mPadding, bounds.top + mPadding,
+        bounds.right - mPadding, bounds.bottom - mPadding);
+    mNotFavoriteDrawable.setBounds(mFavoriteDrawable.getBounds());
+  }
+
+  @Override public int getIntrinsicWidth() {
+    return mSize;
+  }
+
+  @Override public int getIntrinsicHeight() {
+    return mSize;
+  }
+
+  @Override public void setAlpha(int alpha) {
+    // Mutate so the change does not leak into the constant state shared with buttons
+    mFavoriteDrawable.mutate().setAlpha(alpha);
+    mNotFavoriteDrawable.mutate().setAlpha(alpha);
+    invalidateSelf();
+  }
+
+  @Override public void setColorFilter(ColorFilter colorFilter) {
+    mFavoriteDrawable.mutate().setColorFilter(colorFilter);
+    mNotFavoriteDrawable.mutate().setColorFilter(colorFilter);
+    invalidateSelf();
+  }
+
+  @Override public int getOpacity() {
+    return PixelFormat.TRANSLUCENT;
+  }
+}
@@ -0,0 +1,57 @@
+package com.github.ivbaranov.mfb;
+
+/**
+ * Receives timing of favorite animations and listeners, for feeding app telemetry. Register it
+ * for one button with {@link MaterialFavoriteButton#setMetrics(FavoriteMetrics)} or for all
+ * buttons with {@link MaterialFavoriteButton#setGlobalMetrics(FavoriteMetrics)}. Buttons without
+ * metrics measure nothing.
+ *
+ * <p>Methods are called on the main thread, keep them cheap. Frames are counted with {@link
+ * android.view.Choreographer} and are reported as -1 below API 16.</p>
+ */
+public interface FavoriteMetrics {
+  /**
+   * {@link MaterialFavoriteButton.OnFavoriteChangeListener}.
+   */
+  int LISTENER_FAVORITE_CHANGE = 0;
+
+  /**
+   * {@link MaterialFavoriteButton.OnFavoriteAnimationEndListener}.
+   */
+  int LISTENER_ANIMATION_END = 1;
+
+  /**
+   * Called on the first frame of an animation.
+   *
+   * @param latencyNanos time from the state change to the frame
+   */
+  void onFirstFrame(MaterialFavoriteButton button, long latencyNanos);
+
+  /**
+   * Called when an animation ran to its end.
+   *
+   * @param durationNanos actual duration of the animation
+   * @param expectedDurationMillis configured rotation plus bounce duration
+   * @param frames frames rendered while the animation ran
+   * @param droppedFrames frames missed between them
+   */
+  void onAnimationEnd(MaterialFavoriteButton button, long durationNanos,
+      long expectedDurationMillis, int frames, int droppedFrames);
+
+  /**
+   * Called when an animation is cancelled, by a non-animated change or by a new animation
+   * overlapping it.
+   *
+   * @param durationNanos time the animation ran
+   * @param frames frames rendered while the animation ran
+   */
+  void onAnimationCancelled(MaterialFavoriteButton button, long durationNanos, int frames);
+
+  /**
+   * Called after a listener of the button returned.
+   *
+   * @param listener {@link #LISTENER_FAVORITE_CHANGE} or {@link #LISTENER_ANIMATION_END}
+   * @param durationNanos time the listener took
+   */
+  void onListenerCalled(MaterialFavoriteButton button, int listener, long durationNanos);
+}
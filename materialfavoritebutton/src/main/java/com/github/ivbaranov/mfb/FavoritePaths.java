@@ -0,0 +1,143 @@
+package com.github.ivbaranov.mfb;
+
+import android.graphics.Matrix;
+import android.graphics.Path;
+import android.util.SparseArray;
+
+/**
+ * Star and heart outlines and fills as {@link Path} geometry, taken from the Material icons the
+ * library ships as bitmaps. Geometry is scaled once per pixel size and shared by every drawable
+ * that renders that size.
+ */
+final class FavoritePaths {
+  private static final float VIEWPORT_SIZE = 24f;
+  private static final int MAX_CACHED_PATHS = 32;
+
+  private static final SparseArray<Path> sPaths = new SparseArray<Path>();
+  private static final Matrix sMatrix = new Matrix();
+
+  private FavoritePaths() {
+  }
+
+  /**
+   * Returns shared path for the shape scaled to a square of {@code size} pixels. Returned path
+   * must not be modified.
+   *
+   * @param type {@link MaterialFavoriteButton#STYLE_STAR} or {@link
+   * MaterialFavoriteButton#STYLE_HEART}
+   * @param filled true for the favorite shape, false for its border
+   * @param size side of the square in pixels
+   */
+  static Path get(int type, boolean filled, int size) {
+    int key = (size << 2) | (type == MaterialFavoriteButton.STYLE_HEART ? 2 : 0) | (filled ? 1 : 0);
+    synchronized (sPaths) {
+      Path path = sPaths.get(key);
+      if (path == null) {
+        if (sPaths.size() >= MAX_CACHED_PATHS) {
+          sPaths.clear();
+        }
+        path = new Path();
+        sMatrix.setScale(size / VIEWPORT_SIZE, size / VIEWPORT_SIZE);
+        createPath(type, filled).transform(sMatrix, path);
+        sPaths.put(key, path);
+      }
+      return path;
+    }
+  }
+
+  private static Path createPath(int type, boolean filled) {
+    Path path = new Path();
+    if (type == MaterialFavoriteButton.STYLE_HEART) {
+      if (filled) {
+        heart(path);
+      } else {
+        heartBorder(path);
+      }
+    } else {
+      if (filled) {
+        star(path);
+      } else {
+        starBorder(path);
+      }
+    }
+    return path;
+  }
+
+  private static void star(Path path) {
+    path.moveTo(12f, 17.27f);
+    path.lineTo(18.18f, 21f);
+    path.lineTo(16.54f, 13.97f);
+    path.lineTo(22f, 9.24f);
+    path.lineTo(14.81f, 8.63f);
+    path.lineTo(12f, 2f);
+    path.lineTo(9.19f, 8.63f);
+    path.lineTo(2f, 9.24f);
+    path.lineTo(7.46f, 13.97f);
+    path.lineTo(5.82f, 21f);
+    path.close();
+  }
+
+  private static void starBorder(Path path) {
+    path.moveTo(22f, 9.24f);
+    path.lineTo(14.81f, 8.62f);
+    path.lineTo(12f, 2f);
+    path.lineTo(9.19f, 8.63f);
+    path.lineTo(2f, 9.24f);
+    path.lineTo(7.46f, 13.97f);
+    path.lineTo(5.82f, 21f);
+    path.lineTo(12f, 17.27f);
+    path.lineTo(18.18f, 21f);
+    path.lineTo(16.55f, 13.97f);
+    path.lineTo(22f, 9.24f);
+    path.close();
+    path.moveTo(12f, 15.4f);
+    path.lineTo(8.24f, 17.67f);
+    path.lineTo(9.24f, 13.39f);
+    path.lineTo(5.92f, 10.51f);
+    path.lineTo(10.3f, 10.13f);
+    path.lineTo(12f, 6.1f);
+    path.lineTo(13.71f, 10.14f);
+    path.lineTo(18.09f, 10.52f);
+    path.lineTo(14.77f, 13.4f);
+    path.lineTo(15.77f, 17.68f);
+    path.lineTo(12f, 15.4f);
+    path.close();
+  }
+
+  private static void heart(Path path) {
+    path.moveTo(12f, 21.35f);
+    path.lineTo(10.55f, 20.03f);
+    path.cubicTo(5.4f, 15.36f, 2f, 12.28f, 2f, 8.5f);
+    path.cubicTo(2f, 5.42f, 4.42f, 3f, 7.5f, 3f);
+    path.cubicTo(9.24f, 3f, 10.91f, 3.81f, 12f, 5.09f);
+    path.cubicTo(13.09f, 3.81f, 14.76f, 3f, 16.5f, 3f);
+    path.cubicTo(19.58f, 3f, 22f, 5.42f, 22f, 8.5f);
+    path.cubicTo(22f, 12.28f, 18.6f, 15.36f, 13.45f, 20.04f);
+    path.lineTo(12f, 21.35f);
+    path.close();
+  }
+
+  private static void heartBorder(Path path) {
+    path.moveTo(16.5f, 3f);
+    path.cubicTo(14.76f, 3f, 13.09f, 3.81f, 12f, 5.09f);
+    path.cubicTo(10.91f, 3.81f, 9.24f, 3f, 7.5f, 3f);
+    path.cubicTo(4.42f, 3f, 2f, 5.42f, 2f, 8.5f);
+    path.cubicTo(2f, 12.28f, 5.4f, 15.36f, 10.55f, 20.04f);
+    path.lineTo(12f, 21.35f);
+    path.lineTo(13.45f, 20.03f);
+    path.cubicTo(18.6f, 15.36f, 22f, 12.28f, 22f, 8.5f);
+    path.cubicTo(22f, 5.42f, 19.58f, 3f, 16.5f, 3f);
+    path.close();
+    path.moveTo(12.1f, 18.55f);
+    path.lineTo(12f, 18.65f);
+    path.lineTo(11.9f, 18.55f);
+    path.cubicTo(7.14f, 14.24f, 4f, 11.39f, 4f, 8.5f);
+    path.cubicTo(4f, 6.5f, 5.5f, 5f, 7.5f, 5f);
+    path.cubicTo(9.04f, 5f, 10.54f, 5.99f, 11.07f, 7.36f);
+    path.lineTo(12.94f, 7.36f);
+    path.cubicTo(13.46f, 5.99f, 14.96f, 5f, 16.5f, 5f);
+    path.cubicTo(18.5f, 5f, 20f, 6.5f, 20f, 8.5f);
+    path.cubicTo(20f, 11.39f, 16.86f, 14.24f, 12.1f, 18.55f);
+    path.close();
+  }
+}
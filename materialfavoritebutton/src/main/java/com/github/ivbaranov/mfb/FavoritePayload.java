@@ -0,0 +1,74 @@
+package com.github.ivbaranov.mfb;
+
+import java.util.List;
+
+/**
+ * RecyclerView payload carrying a favorite state changed outside the row, for example by a server
+ * push. Pass it to {@code notifyItemChanged(position, payload)} or return it from {@code
+ * DiffUtil.Callback.getChangePayload}, and apply it in {@code onBindViewHolder}:
+ *
+ * <pre>
+ * &#64;Override
+ * public void onBindViewHolder(ViewHolder holder, int position, List&lt;Object&gt; payloads) {
+ *   if (!FavoritePayload.apply(holder.favorite, payloads)) {
+ *     onBindViewHolder(holder, position);
+ *   }
+ * }
+ * </pre>
+ *
+ * <p>Only the favorite button is updated, the rest of the row is left as it is, including its
+ * {@link FavoriteCounterView}: set the new count with {@link FavoriteCounterView#setCount(int)}.
+ * The two payloads are shared instances, posting them allocates nothing.</p>
+ */
+public final class FavoritePayload {
+  public static final FavoritePayload FAVORITE = new FavoritePayload(true);
+  public static final FavoritePayload NOT_FAVORITE = new FavoritePayload(false);
+
+  private final boolean mFavorite;
+
+  private FavoritePayload(boolean favorite) {
+    mFavorite = favorite;
+  }
+
+  /**
+   * Returns the payload of the state.
+   */
+  public static FavoritePayload of(boolean favorite) {
+    return favorite ? FAVORITE : NOT_FAVORITE;
+  }
+
+  public boolean isFavorite() {
+    return mFavorite;
+  }
+
+  /**
+   * Applies the last favorite payload of a partial bind to the button, without calling {@link
+   * MaterialFavoriteButton.OnFavoriteChangeListener}. Visibility is checked before the next draw,
+   * once RecyclerView has put the row back in place: a button on screen animates as configured
+   * by its style, a detached, hidden or scrolled out button jumps to the state.
+   *
+   * @param payloads payloads passed to {@code onBindViewHolder}
+   * @return true if all payloads were favorite payloads, false if the row needs a full bind or
+   * has other payloads to apply
+   */
+  public static boolean apply(MaterialFavoriteButton button, List<Object> payloads) {
+    FavoritePayload last = null;
+    boolean handled = !payloads.isEmpty();
+    for (int i = 0, size = payloads.size(); i < size; i++) {
+      Object payload = payloads.get(i);
+      if (payload instanceof FavoritePayload) {
+        last = (FavoritePayload) payload;
+      } else {
+        handled = false;
+      }
+    }
+    if (last != null) {
+      button.applyFavorite(last.mFavorite);
+    }
+    return handled;
+  }
+
+  @Override public String toString() {
+    return "FavoritePayload{favorite=" + mFavorite + "}";
+  }
+}
@@ -0,0 +1,59 @@
+package com.github.ivbaranov.mfb;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+/**
+ * Draws the built-in star or heart from {@link FavoritePaths} geometry, no bitmaps are decoded.
+ * The drawable has no intrinsic size, so it is always rendered at the pixel size of its bounds.
+ */
+class FavoriteShapeDrawable extends Drawable {
+  private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final int mType;
+  private final boolean mFilled;
+  private Path mPath;
+
+  FavoriteShapeDrawable(int type, boolean filled, int color) {
+    mType = type;
+    mFilled = filled;
+    mPaint.setStyle(Paint.Style.FILL);
+    mPaint.setColor(color);
+  }
+
+  @Override protected void onBoundsChange(Rect bounds) {
+    int size = Math.min(bounds.width(), bounds.height());
+    mPath = size > 0 ? FavoritePaths.get(mType, mFilled, size) : null;
+  }
+
+  @Override public void draw(Canvas canvas) {
+    if (mPath == null) {
+      return;
+    }
+    Rect bounds = getBounds();
+    int size = Math.min(bounds.width(), bounds.height());
+    int saveCount = canvas.save();
+    canvas.translate(bounds.left + (bounds.width() - size) / 2f,
+        bounds.top + (bounds.height() - size) / 2f);
+    canvas.drawPath(mPath, mPaint);
+    canvas.restoreToCount(saveCount);
+  }
+
+  @Override public void setAlpha(int alpha) {
+    mPaint.setAlpha(alpha);
+    invalidateSelf();
+  }
+
+  @Override public void setColorFilter(ColorFilter colorFilter) {
+    mPaint.setColorFilter(colorFilter);
+    invalidateSelf();
+  }
+
+  @Override public int getOpacity() {
+    return PixelFormat.TRANSLUCENT;
+  }
+}
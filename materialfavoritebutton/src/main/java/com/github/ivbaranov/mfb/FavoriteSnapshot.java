@@ -0,0 +1,124 @@
+package com.github.ivbaranov.mfb;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * Favorite states of many buttons or list items packed into a bitset, one bit per state. Save it
+ * in {@code onSaveInstanceState} and apply it on restore: states are applied without animation and
+ * without calling listeners.
+ *
+ * <pre>
+ * outState.putParcelable("favorites", FavoriteSnapshot.of(favorites, itemIds));
+ * ...
+ * FavoriteSnapshot snapshot = savedInstanceState.getParcelable("favorites");
+ * snapshot.applyTo(favorites, itemIds);
+ * </pre>
+ */
+public final class FavoriteSnapshot implements Parcelable {
+  private final int mSize;
+  private final long[] mWords;
+
+  /**
+   * Creates snapshot of {@code size} states, all not favorite.
+   */
+  public FavoriteSnapshot(int size) {
+    mSize = size;
+    mWords = new long[(size + 63) >>> 6];
+  }
+
+  private FavoriteSnapshot(Parcel in) {
+    mSize = in.readInt();
+    mWords = in.createLongArray();
+  }
+
+  /**
+   * Returns snapshot of the buttons' states, in order.
+   */
+  public static FavoriteSnapshot of(MaterialFavoriteButton... buttons) {
+    FavoriteSnapshot snapshot = new FavoriteSnapshot(buttons.length);
+    for (int i = 0; i < buttons.length; i++) {
+      snapshot.set(i, buttons[i].isFavorite());
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns snapshot of the items' states in the store, in order of the ids.
+   */
+  public static FavoriteSnapshot of(FavoriteStateStore store, long[] itemIds) {
+    FavoriteSnapshot snapshot = new FavoriteSnapshot(itemIds.length);
+    for (int i = 0; i < itemIds.length; i++) {
+      snapshot.set(i, store.isFavorite(itemIds[i]));
+    }
+    return snapshot;
+  }
+
+  /**
+   * Returns number of states.
+   */
+  public int size() {
+    return mSize;
+  }
+
+  public boolean get(int index) {
+    checkIndex(index);
+    return (mWords[index >>> 6] & (1L << index)) != 0;
+  }
+
+  public void set(int index, boolean favorite) {
+    checkIndex(index);
+    if (favorite) {
+      mWords[index >>> 6] |= 1L << index;
+    } else {
+      mWords[index >>> 6] &= ~(1L << index);
+    }
+  }
+
+  /**
+   * Restores states of the buttons, in order, without animation and without calling listeners.
+   * Extra buttons or states are ignored.
+   */
+  public void applyTo(MaterialFavoriteButton... buttons) {
+    int count = Math.min(mSize, buttons.length);
+    for (int i = 0; i < count; i++) {
+      buttons[i].restoreFavorite(get(i));
+    }
+  }
+
+  /**
+   * Restores states of the items in the store, in order of the ids. Extra ids or states are
+   * ignored.
+   */
+  public void applyTo(FavoriteStateStore store, long[] itemIds) {
+    int count = Math.min(mSize, itemIds.length);
+    for (int i = 0; i < count; i++) {
+      store.setFavorite(itemIds[i], get(i));
+    }
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= mSize) {
+      throw new IndexOutOfBoundsException("index=" + index + ", size=" + mSize);
+    }
+  }
+
+  @Override public int describeContents() {
+    return 0;
+  }
+
+  @Override public void writeToParcel(Parcel dest, int flags) {
+    dest.writeInt(mSize);
+    dest.writeLongArray(mWords);
+  }
+
+  public static final Creator<FavoriteSnapshot> CREATOR = new Creator<FavoriteSnapshot>() {
+    @Override public FavoriteSnapshot createFromParcel(Parcel in) {
+      return new FavoriteSnapshot(in);
+    }
+
+    @Override public FavoriteSnapshot[] newArray(int size) {
+      return new FavoriteSnapshot[size];
+    }
+  };
+}
@@ -0,0 +1,184 @@
+package com.github.ivbaranov.mfb;
+
+import java.util.Arrays;
+
+/**
+ * Compact set of favorite item ids for binding buttons in lists, see {@link
+ * MaterialFavoriteButton#bind(FavoriteStateStore, long)}.
+ *
+ * <p>Ids are kept in an open addressing table of primitive longs, so lookups and updates are
+ * O(1) and never box. The store is not thread-safe, use it from the main thread.</p>
+ */
+public final class FavoriteStateStore {
+  private static final int DEFAULT_CAPACITY = 16;
+  private static final long EMPTY = 0L;
+
+  private long[] mTable;
+  private int mSize;
+  private boolean mHasEmptyKey;
+
+  public FavoriteStateStore() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedSize number of favorite ids the store should hold without growing
+   */
+  public FavoriteStateStore(int expectedSize) {
+    mTable = new long[tableSizeFor(expectedSize)];
+  }
+
+  /**
+   * Grows the store to hold {@code expectedSize} favorite ids without growing again, for example
+   * before loading many ids at once.
+   */
+  public void ensureCapacity(int expectedSize) {
+    int capacity = tableSizeFor(expectedSize);
+    if (capacity > mTable.length) {
+      rehash(capacity);
+    }
+  }
+
+  /**
+   * Returns true if the item is favorite.
+   */
+  public boolean isFavorite(long id) {
+    if (id == EMPTY) {
+      return mHasEmptyKey;
+    }
+    long[] table = mTable;
+    int mask = table.length - 1;
+    for (int i = hash(id) & mask; ; i = (i + 1) & mask) {
+      long key = table[i];
+      if (key == EMPTY) {
+        return false;
+      }
+      if (key == id) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Sets favorite state of the item.
+   *
+   * @return true if the state changed
+   */
+  public boolean setFavorite(long id, boolean favorite) {
+    return favorite ? add(id) : remove(id);
+  }
+
+  /**
+   * Returns number of favorite items.
+   */
+  public int size() {
+    return mHasEmptyKey ? mSize + 1 : mSize;
+  }
+
+  /**
+   * Removes all favorite items.
+   */
+  public void clear() {
+    Arrays.fill(mTable, EMPTY);
+    mSize = 0;
+    mHasEmptyKey = false;
+  }
+
+  /**
+   * Returns ids of all favorite items in no particular order.
+   */
+  public long[] toArray() {
+    long[] ids = new long[size()];
+    int index = 0;
+    if (mHasEmptyKey) {
+      ids[index++] = EMPTY;
+    }
+    for (long key : mTable) {
+      if (key != EMPTY) {
+        ids[index++] = key;
+      }
+    }
+    return ids;
+  }
+
+  private boolean add(long id) {
+    if (id == EMPTY) {
+      boolean changed = !mHasEmptyKey;
+      mHasEmptyKey = true;
+      return changed;
+    }
+    long[] table = mTable;
+    int mask = table.length - 1;
+    int i = hash(id) & mask;
+    for (long key = table[i]; key != EMPTY; key = table[i]) {
+      if (key == id) {
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+    table[i] = id;
+    // Keep load factor under 1/2 so probe sequences stay short
+    if (++mSize * 2 > table.length) {
+      rehash(table.length * 2);
+    }
+    return true;
+  }
+
+  private boolean remove(long id) {
+    if (id == EMPTY) {
+      boolean changed = mHasEmptyKey;
+      mHasEmptyKey = false;
+      return changed;
+    }
+    long[] table = mTable;
+    int mask = table.length - 1;
+    int i = hash(id) & mask;
+    for (long key = table[i]; key != id; key = table[i]) {
+      if (key == EMPTY) {
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+    // Shift following entries of the probe sequence back instead of leaving tombstones
+    int gap = i;
+    for (int j = (gap + 1) & mask; table[j] != EMPTY; j = (j + 1) & mask) {
+      int home = hash(table[j]) & mask;
+      if (((j - home) & mask) >= ((j - gap) & mask)) {
+        table[gap] = table[j];
+        gap = j;
+      }
+    }
+    table[gap] = EMPTY;
+    mSize--;
+    return true;
+  }
+
+  private void rehash(int capacity) {
+    long[] old = mTable;
+    long[] table = new long[capacity];
+    int mask = capacity - 1;
+    for (long key : old) {
+      if (key != EMPTY) {
+        int i = hash(key) & mask;
+        while (table[i] != EMPTY) {
+          i = (i + 1) & mask;
+        }
+        table[i] = key;
+      }
+    }
+    mTable = table;
+  }
+
+  private static int tableSizeFor(int expectedSize) {
+    int capacity = DEFAULT_CAPACITY;
+    while (capacity < expectedSize * 2) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  private static int hash(long id) {
+    long h = id * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
@@ -0,0 +1,424 @@
+package com.github.ivbaranov.mfb;
+
+import android.graphics.Color;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Immutable configuration of {@link MaterialFavoriteButton}: size, padding, resources, colors and
+ * animation parameters. Styles are interned, so equal styles are the same instance and buttons
+ * with identical configuration share one object instead of copying every field. Interning holds
+ * styles weakly, a style no longer used by any button or caller can be collected.
+ *
+ * <p>Use {@link Builder} to create a style and {@link #applyTo(MaterialFavoriteButton...)} to swap
+ * the style of many buttons at once.</p>
+ */
+public final class FavoriteStyle {
+  static final int DEFAULT_BUTTON_SIZE = 48;
+  static final int DEFAULT_PADDING = 12;
+  static final boolean DEFAULT_ANIMATE_FAVORITE = true;
+  static final boolean DEFAULT_ANIMATE_UNFAVORITE = false;
+  static final int DEFAULT_ROTATION_DURATION = 400;
+  static final int DEFAULT_ROTATION_ANGLE = 360;
+  static final int DEFAULT_BOUNCE_DURATION = 300;
+  static final boolean DEFAULT_REUSE_ANIMATORS = false;
+  static final int DEFAULT_RENDERER = MaterialFavoriteButton.RENDERER_BITMAP;
+  static final boolean DEFAULT_PRECOMPUTED_EASING = false;
+  static final int FAVORITE_STAR_BLACK = R.drawable.ic_star_black_24dp;
+  static final int FAVORITE_STAR_BORDER_BLACK = R.drawable.ic_star_border_black_24dp;
+  static final int FAVORITE_HEART_BLACK = R.drawable.ic_favorite_black_24dp;
+  static final int FAVORITE_HEART_BORDER_BLACK = R.drawable.ic_favorite_border_black_24dp;
+
+  // Values are weak too, a strong value would keep its own key reachable
+  private static final Map<FavoriteStyle, WeakReference<FavoriteStyle>> sInterned =
+      new WeakHashMap<FavoriteStyle, WeakReference<FavoriteStyle>>();
+
+  /**
+   * Style of a button declared in XML without attributes.
+   */
+  public static final FavoriteStyle DEFAULT = new Builder().build();
+
+  private final int mSize;
+  private final int mPadding;
+  private final boolean mAnimateFavorite;
+  private final boolean mAnimateUnfavorite;
+  private final int mFavoriteResource;
+  private final int mNotFavoriteResource;
+  private final boolean mCustomResources;
+  private final int mRotationDuration;
+  private final int mRotationAngle;
+  private final int mBounceDuration;
+  private final int mColor;
+  private final int mType;
+  private final boolean mReuseAnimators;
+  private final int mRenderer;
+  private final boolean mPrecomputedEasing;
+
+  private FavoriteStyle(Builder builder) {
+    mSize = builder.mSize;
+    mPadding = builder.mPadding;
+    mAnimateFavorite = builder.mAnimateFavorite;
+    mAnimateUnfavorite = builder.mAnimateUnfavorite;
+    mFavoriteResource = builder.mFavoriteResource;
+    mNotFavoriteResource = builder.mNotFavoriteResource;
+    mCustomResources = builder.mCustomResources;
+    mRotationDuration = builder.mRotationDuration;
+    mRotationAngle = builder.mRotationAngle;
+    mBounceDuration = builder.mBounceDuration;
+    mColor = builder.mColor;
+    mType = builder.mType;
+    mReuseAnimators = builder.mReuseAnimators;
+    mRenderer = builder.mRenderer;
+    mPrecomputedEasing = builder.mPrecomputedEasing;
+  }
+
+  /**
+   * Returns interned instance equal to the style.
+   */
+  private static FavoriteStyle intern(FavoriteStyle style) {
+    synchronized (sInterned) {
+      WeakReference<FavoriteStyle> reference = sInterned.get(style);
+      FavoriteStyle interned = reference != null ? reference.get() : null;
+      if (interned == null) {
+        sInterned.put(style, new WeakReference<FavoriteStyle>(style));
+        interned = style;
+      }
+      return interned;
+    }
+  }
+
+  /**
+   * Returns number of interned styles that were not collected yet.
+   */
+  static int internedCount() {
+    synchronized (sInterned) {
+      return sInterned.size();
+    }
+  }
+
+  /**
+   * Returns builder initialized with values of this style.
+   */
+  public Builder buildUpon() {
+    return new Builder(this);
+  }
+
+  /**
+   * Sets this style on every button.
+   */
+  public void applyTo(MaterialFavoriteButton... buttons) {
+    for (MaterialFavoriteButton button : buttons) {
+      button.setStyle(this);
+    }
+  }
+
+  /**
+   * Sets this style on every button.
+   */
+  public void applyTo(Iterable<? extends MaterialFavoriteButton> buttons) {
+    for (MaterialFavoriteButton button : buttons) {
+      button.setStyle(this);
+    }
+  }
+
+  /**
+   * Returns button size in dp.
+   */
+  public int getSize() {
+    return mSize;
+  }
+
+  /**
+   * Returns image padding in dp.
+   */
+  public int getPadding() {
+    return mPadding;
+  }
+
+  public boolean isAnimateFavorite() {
+    return mAnimateFavorite;
+  }
+
+  public boolean isAnimateUnfavorite() {
+    return mAnimateUnfavorite;
+  }
+
+  public int getFavoriteResource() {
+    return mFavoriteResource;
+  }
+
+  public int getNotFavoriteResource() {
+    return mNotFavoriteResource;
+  }
+
+  /**
+   * Returns true if favorite and not favorite resources were set explicitly instead of being
+   * picked by color and type.
+   */
+  public boolean hasCustomResources() {
+    return mCustomResources;
+  }
+
+  public int getRotationDuration() {
+    return mRotationDuration;
+  }
+
+  public int getRotationAngle() {
+    return mRotationAngle;
+  }
+
+  public int getBounceDuration() {
+    return mBounceDuration;
+  }
+
+  /**
+   * Returns ARGB color of the built-in icons, {@link MaterialFavoriteButton#STYLE_BLACK} and
+   * {@link MaterialFavoriteButton#STYLE_WHITE} resolved to black and white.
+   */
+  public int getColor() {
+    return mColor;
+  }
+
+  public int getType() {
+    return mType;
+  }
+
+  public boolean isReuseAnimators() {
+    return mReuseAnimators;
+  }
+
+  public int getRenderer() {
+    return mRenderer;
+  }
+
+  /**
+   * Returns true if animation curves are read from lookup tables shared by all buttons animating
+   * with the same durations, instead of evaluating the interpolators every frame.
+   */
+  public boolean isPrecomputedEasing() {
+    return mPrecomputedEasing;
+  }
+
+  /**
+   * Returns true if both styles draw the same drawables.
+   */
+  boolean hasSameImages(FavoriteStyle other) {
+    return mFavoriteResource == other.mFavoriteResource
+        && mNotFavoriteResource == other.mNotFavoriteResource
+        && mCustomResources == other.mCustomResources
+        && mColor == other.mColor
+        && mType == other.mType
+        && mRenderer == other.mRenderer;
+  }
+
+  /**
+   * Returns true if animators built for one style can be reused for the other.
+   */
+  boolean hasSameAnimation(FavoriteStyle other) {
+    return mRotationDuration == other.mRotationDuration
+        && mRotationAngle == other.mRotationAngle
+        && mBounceDuration == other.mBounceDuration
+        && mPrecomputedEasing == other.mPrecomputedEasing;
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof FavoriteStyle)) {
+      return false;
+    }
+    FavoriteStyle style = (FavoriteStyle) o;
+    return mSize == style.mSize
+        && mPadding == style.mPadding
+        && mAnimateFavorite == style.mAnimateFavorite
+        && mAnimateUnfavorite == style.mAnimateUnfavorite
+        && mReuseAnimators == style.mReuseAnimators
+        && hasSameImages(style)
+        && hasSameAnimation(style);
+  }
+
+  @Override public int hashCode() {
+    int result = mSize;
+    result = 31 * result + mPadding;
+    result = 31 * result + (mAnimateFavorite ? 1 : 0);
+    result = 31 * result + (mAnimateUnfavorite ? 1 : 0);
+    result = 31 * result + mFavoriteResource;
+    result = 31 * result + mNotFavoriteResource;
+    result = 31 * result + (mCustomResources ? 1 : 0);
+    result = 31 * result + mRotationDuration;
+    result = 31 * result + mRotationAngle;
+    result = 31 * result + mBounceDuration;
+    result = 31 * result + mColor;
+    result = 31 * result + mType;
+    result = 31 * result + (mReuseAnimators ? 1 : 0);
+    result = 31 * result + mRenderer;
+    result = 31 * result + (mPrecomputedEasing ? 1 : 0);
+    return result;
+  }
+
+  /**
+   * Builder.
+   */
+  public static final class Builder {
+    private int mSize = DEFAULT_BUTTON_SIZE;
+    private int mPadding = DEFAULT_PADDING;
+    private boolean mAnimateFavorite = DEFAULT_ANIMATE_FAVORITE;
+    private boolean mAnimateUnfavorite = DEFAULT_ANIMATE_UNFAVORITE;
+    private int mFavoriteResource = FAVORITE_STAR_BLACK;
+    private int mNotFavoriteResource = FAVORITE_STAR_BORDER_BLACK;
+    private boolean mCustomResources = false;
+    private int mRotationDuration = DEFAULT_ROTATION_DURATION;
+    private int mRotationAngle = DEFAULT_ROTATION_ANGLE;
+    private int mBounceDuration = DEFAULT_BOUNCE_DURATION;
+    private int mColor = Color.BLACK;
+    private int mType = MaterialFavoriteButton.STYLE_STAR;
+    private boolean mReuseAnimators = DEFAULT_REUSE_ANIMATORS;
+    private int mRenderer = DEFAULT_RENDERER;
+    private boolean mPrecomputedEasing = DEFAULT_PRECOMPUTED_EASING;
+
+    public Builder() {
+    }
+
+    private Builder(FavoriteStyle style) {
+      mSize = style.mSize;
+      mPadding = style.mPadding;
+      mAnimateFavorite = style.mAnimateFavorite;
+      mAnimateUnfavorite = style.mAnimateUnfavorite;
+      mFavoriteResource = style.mFavoriteResource;
+      mNotFavoriteResource = style.mNotFavoriteResource;
+      mCustomResources = style.mCustomResources;
+      mRotationDuration = style.mRotationDuration;
+      mRotationAngle = style.mRotationAngle;
+      mBounceDuration = style.mBounceDuration;
+      mColor = style.mColor;
+      mType = style.mType;
+      mReuseAnimators = style.mReuseAnimators;
+      mRenderer = style.mRenderer;
+      mPrecomputedEasing = style.mPrecomputedEasing;
+    }
+
+    public Builder size(int size) {
+      this.mSize = size;
+      return this;
+    }
+
+    public Builder padding(int padding) {
+      this.mPadding = padding;
+      return this;
+    }
+
+    public Builder animateFavorite(boolean animation) {
+      this.mAnimateFavorite = animation;
+      return this;
+    }
+
+    public Builder animateUnfavorite(boolean animation) {
+      this.mAnimateUnfavorite = animation;
+      return this;
+    }
+
+    public Builder favoriteResource(int resource) {
+      this.mFavoriteResource = resource;
+      mCustomResources = true;
+      return this;
+    }
+
+    public Builder notFavoriteResource(int resource) {
+      this.mNotFavoriteResource = resource;
+      mCustomResources = true;
+      return this;
+    }
+
+    public Builder rotationDuration(int rotationDuration) {
+      this.mRotationDuration = rotationDuration;
+      return this;
+    }
+
+    public Builder rotationAngle(int rotationAngle) {
+      this.mRotationAngle = rotationAngle;
+      return this;
+    }
+
+    public Builder bounceDuration(int bounceDuration) {
+      this.mBounceDuration = bounceDuration;
+      return this;
+    }
+
+    /**
+     * Sets color of the built-in icons, replaces custom resources.
+     *
+     * @param color {@link MaterialFavoriteButton#STYLE_BLACK}, {@link
+     * MaterialFavoriteButton#STYLE_WHITE} or an ARGB color, use {@link #argbColor(int)} for the
+     * transparent colors sharing their values
+     */
+    public Builder color(int color) {
+      if (color == MaterialFavoriteButton.STYLE_BLACK) {
+        color = Color.BLACK;
+      } else if (color == MaterialFavoriteButton.STYLE_WHITE) {
+        color = Color.WHITE;
+      }
+      return argbColor(color);
+    }
+
+    /**
+     * Sets color of the built-in icons, replaces custom resources. The value is always taken as
+     * ARGB color.
+     */
+    public Builder argbColor(int color) {
+      this.mColor = color;
+      setTheme(mType);
+      return this;
+    }
+
+    /**
+     * Sets shape of the built-in icons, replaces custom resources.
+     *
+     * @param type {@link MaterialFavoriteButton#STYLE_STAR} or {@link
+     * MaterialFavoriteButton#STYLE_HEART}
+     */
+    public Builder type(int type) {
+      this.mType = type;
+      setTheme(type);
+      return this;
+    }
+
+    public Builder reuseAnimators(boolean reuseAnimators) {
+      this.mReuseAnimators = reuseAnimators;
+      return this;
+    }
+
+    public Builder renderer(int renderer) {
+      this.mRenderer = renderer;
+      return this;
+    }
+
+    public Builder precomputedEasing(boolean precomputedEasing) {
+      this.mPrecomputedEasing = precomputedEasing;
+      return this;
+    }
+
+    /**
+     * Selects built-in resources for the shape. Black icons are used as alpha masks for every
+     * color, other colors are applied with a shared color filter.
+     */
+    private void setTheme(int type) {
+      if (type == MaterialFavoriteButton.STYLE_STAR) {
+        mFavoriteResource = FAVORITE_STAR_BLACK;
+        mNotFavoriteResource = FAVORITE_STAR_BORDER_BLACK;
+      } else {
+        mFavoriteResource = FAVORITE_HEART_BLACK;
+        mNotFavoriteResource = FAVORITE_HEART_BORDER_BLACK;
+      }
+      mCustomResources = false;
+    }
+
+    /**
+     * Returns shared style instance with the configured values.
+     */
+    public FavoriteStyle build() {
+      return intern(new FavoriteStyle(this));
+    }
+  }
+}
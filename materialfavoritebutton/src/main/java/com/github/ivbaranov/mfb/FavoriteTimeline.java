@@ -0,0 +1,113 @@
+package com.github.ivbaranov.mfb;
+
+import android.animation.TimeInterpolator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rotation-then-bounce timeline baked into lookup tables, see {@link
+ * FavoriteStyle#isPrecomputedEasing()}. The accelerate and overshoot curves are sampled once per
+ * pair of durations and shared by every button and drawable animating with them, so a frame costs
+ * a table lookup instead of evaluating the interpolators.
+ */
+final class FavoriteTimeline {
+  private static final int SAMPLES = 256;
+
+  private static final Map<Long, FavoriteTimeline> sTimelines =
+      new HashMap<Long, FavoriteTimeline>();
+
+  private final int mRotationDuration;
+  private final int mBounceDuration;
+  private final float mSampleDuration;
+  private final float[] mRotation;
+  private final float[] mBounce;
+  private final TimeInterpolator mRotationInterpolator = new TimeInterpolator() {
+    @Override public float getInterpolation(float input) {
+      return getRotation(input * mRotationDuration);
+    }
+  };
+  private final TimeInterpolator mBounceInterpolator = new TimeInterpolator() {
+    @Override public float getInterpolation(float input) {
+      return getBounce(mRotationDuration + input * mBounceDuration);
+    }
+  };
+
+  private FavoriteTimeline(int rotationDuration, int bounceDuration) {
+    mRotationDuration = rotationDuration;
+    mBounceDuration = bounceDuration;
+    int duration = rotationDuration + bounceDuration;
+    int samples = duration > 0 ? SAMPLES : 1;
+    mSampleDuration = duration / (float) Math.max(1, samples - 1);
+    mRotation = new float[samples];
+    mBounce = new float[samples];
+    for (int i = 0; i < samples; i++) {
+      float time = i * mSampleDuration;
+      if (time < rotationDuration) {
+        mRotation[i] = MaterialFavoriteButton.ACCELERATE_INTERPOLATOR
+            .getInterpolation(time / rotationDuration);
+        mBounce[i] = 0;
+      } else {
+        mRotation[i] = 1.0f;
+        mBounce[i] = bounceDuration > 0 ? MaterialFavoriteButton.OVERSHOOT_INTERPOLATOR
+            .getInterpolation(Math.min(1.0f, (time - rotationDuration) / bounceDuration)) : 1.0f;
+      }
+    }
+  }
+
+  /**
+   * Returns the shared timeline for the durations.
+   */
+  static FavoriteTimeline get(int rotationDuration, int bounceDuration) {
+    Long key = ((long) rotationDuration << 32) | (bounceDuration & 0xffffffffL);
+    synchronized (sTimelines) {
+      FavoriteTimeline timeline = sTimelines.get(key);
+      if (timeline == null) {
+        timeline = new FavoriteTimeline(rotationDuration, bounceDuration);
+        sTimelines.put(key, timeline);
+      }
+      return timeline;
+    }
+  }
+
+  /**
+   * Returns the accelerated rotation fraction at the time since the animation started.
+   */
+  float getRotation(float elapsed) {
+    return lookup(mRotation, elapsed);
+  }
+
+  /**
+   * Returns the overshooting bounce fraction at the time since the animation started, 0 while
+   * rotating.
+   */
+  float getBounce(float elapsed) {
+    return lookup(mBounce, elapsed);
+  }
+
+  /**
+   * Returns interpolator of the rotation animator reading the table.
+   */
+  TimeInterpolator getRotationInterpolator() {
+    return mRotationInterpolator;
+  }
+
+  /**
+   * Returns interpolator of the bounce animators reading the table.
+   */
+  TimeInterpolator getBounceInterpolator() {
+    return mBounceInterpolator;
+  }
+
+  private float lookup(float[] table, float elapsed) {
+    float position = elapsed / mSampleDuration;
+    if (!(position > 0)) {
+      return table[0];
+    }
+    int index = (int) position;
+    if (index >= table.length - 1) {
+      return table[table.length - 1];
+    }
+    float fraction = position - index;
+    return table[index] + (table[index + 1] - table[index]) * fraction;
+  }
+}
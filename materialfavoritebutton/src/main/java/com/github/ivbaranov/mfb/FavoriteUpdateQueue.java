@@ -0,0 +1,64 @@
+package com.github.ivbaranov.mfb;
+
+import java.util.ArrayList;
+
+/**
+ * Applies favorite states posted from any thread on the main thread, once per frame. Each button
+ * keeps only its latest posted state and is queued once until it is applied, so any number of
+ * posts costs one update per button.
+ */
+final class FavoriteUpdateQueue {
+  private static final Object sLock = new Object();
+  private static ArrayList<MaterialFavoriteButton> sPending =
+      new ArrayList<MaterialFavoriteButton>();
+  private static ArrayList<MaterialFavoriteButton> sApplying =
+      new ArrayList<MaterialFavoriteButton>();
+  private static boolean sScheduled;
+
+  private static final FrameTask sFrameTask = new FrameTask() {
+    @Override void doFrame(long frameTimeNanos) {
+      apply();
+    }
+  };
+  private static final Runnable sScheduleRunnable = new Runnable() {
+    @Override public void run() {
+      sFrameTask.post();
+    }
+  };
+
+  private FavoriteUpdateQueue() {
+  }
+
+  /**
+   * Queues the button, called once per button until its posted state is applied.
+   */
+  static void enqueue(MaterialFavoriteButton button) {
+    boolean schedule;
+    synchronized (sLock) {
+      sPending.add(button);
+      schedule = !sScheduled;
+      sScheduled = true;
+    }
+    if (schedule) {
+      // Choreographer is bound to the looper of the calling thread, hop to the main thread first
+      FrameTask.getMainHandler().post(sScheduleRunnable);
+    }
+  }
+
+  private static void apply() {
+    ArrayList<MaterialFavoriteButton> buttons;
+    synchronized (sLock) {
+      buttons = sPending;
+      sPending = sApplying;
+      sApplying = buttons;
+      sScheduled = false;
+    }
+    try {
+      for (int i = 0, size = buttons.size(); i < size; i++) {
+        buttons.get(i).applyPostedFavorite();
+      }
+    } finally {
+      buttons.clear();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.github.ivbaranov.mfb;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * Work run once on the next frame, on the main thread: with {@link Choreographer} on API 16 and
+ * above, after a frame-long delay on the main handler below. Posting again before the frame does
+ * nothing. Must be posted and cancelled on the main thread.
+ */
+abstract class FrameTask {
+  private static final long FALLBACK_FRAME_DELAY = 16;
+  private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+  private final Runnable mFallbackRunnable = new Runnable() {
+    @Override public void run() {
+      onFrame(System.nanoTime());
+    }
+  };
+  private Object mFrameCallback;
+  private boolean mPosted;
+
+  /**
+   * Returns the handler of the main thread shared by the library.
+   */
+  static Handler getMainHandler() {
+    return sMainHandler;
+  }
+
+  /**
+   * Called on the frame.
+   *
+   * @param frameTimeNanos frame time in the {@link System#nanoTime()} time base
+   */
+  abstract void doFrame(long frameTimeNanos);
+
+  // Not final, tests run frames by hand with a task that only records posts
+  void post() {
+    if (mPosted) {
+      return;
+    }
+    mPosted = true;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      postFrameCallback();
+    } else {
+      sMainHandler.postDelayed(mFallbackRunnable, FALLBACK_FRAME_DELAY);
+    }
+  }
+
+  void cancel() {
+    if (!mPosted) {
+      return;
+    }
+    mPosted = false;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      removeFrameCallback();
+    } else {
+      sMainHandler.removeCallbacks(mFallbackRunnable);
+    }
+  }
+
+  private void onFrame(long frameTimeNanos) {
+    // Cleared first, the task may post itself again for the following frame
+    mPosted = false;
+    doFrame(frameTimeNanos);
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN) private void postFrameCallback() {
+    if (mFrameCallback == null) {
+      mFrameCallback = new Choreographer.FrameCallback() {
+        @Override public void doFrame(long frameTimeNanos) {
+          onFrame(frameTimeNanos);
+        }
+      };
+    }
+    Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN) private void removeFrameCallback() {
+    Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mFrameCallback);
+  }
+}
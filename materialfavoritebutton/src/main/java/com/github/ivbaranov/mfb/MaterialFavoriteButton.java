@@ -4,56 +4,109 @@ import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.AnimatorSet;
 import android.animation.ObjectAnimator;
+import android.animation.TimeInterpolator;
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.util.AttributeSet;
+import android.util.Property;
+import android.util.TypedValue;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.animation.AccelerateInterpolator;
 import android.view.animation.OvershootInterpolator;
 import android.widget.ImageView;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MaterialFavoriteButton extends ImageView {
   public static final int STYLE_BLACK = 0;
   public static final int STYLE_WHITE = 1;
   public static final int STYLE_STAR = 0;
   public static final int STYLE_HEART = 1;
+  public static final int RENDERER_BITMAP = 0;
+  public static final int RENDERER_VECTOR = 1;
+  public static final int RENDERER_ATLAS = 2;
 
-  private static final int DEFAULT_BUTTON_SIZE = 48;
-  private static final int DEFAULT_PADDING = 12;
   private static final boolean DEFAULT_FAVORITE = false;
-  private static final boolean DEFAULT_ANIMATE_FAVORITE = true;
-  private static final boolean DEFAULT_ANIMATE_UNFAVORITE = false;
-  private static final int DEFAULT_ROTATION_DURATION = 400;
-  private static final int DEFAULT_ROTATION_ANGLE = 360;
-  private static final int DEFAULT_BOUNCE_DURATION = 300;
-  private static final int FAVORITE_STAR_BLACK = R.drawable.ic_star_black_24dp;
-  private static final int FAVORITE_STAR_BORDER_BLACK = R.drawable.ic_star_border_black_24dp;
-  private static final int FAVORITE_STAR_WHITE = R.drawable.ic_star_white_24dp;
-  private static final int FAVORITE_STAR_BORDER_WHITE = R.drawable.ic_star_border_white_24dp;
-  private static final int FAVORITE_HEART_BLACK = R.drawable.ic_favorite_black_24dp;
-  private static final int FAVORITE_HEART_BORDER_BLACK = R.drawable.ic_favorite_border_black_24dp;
-  private static final int FAVORITE_HEART_WHITE = R.drawable.ic_favorite_white_24dp;
-  private static final int FAVORITE_HEART_BORDER_WHITE = R.drawable.ic_favorite_border_white_24dp;
-  private static final AccelerateInterpolator ACCELERATE_INTERPOLATOR =
-      new AccelerateInterpolator();
-  private static final OvershootInterpolator OVERSHOOT_INTERPOLATOR = new OvershootInterpolator(4);
+  static final AccelerateInterpolator ACCELERATE_INTERPOLATOR = new AccelerateInterpolator();
+  static final OvershootInterpolator OVERSHOOT_INTERPOLATOR = new OvershootInterpolator(4);
+  private static volatile boolean sAnimationsEnabled = true;
+  private static volatile FavoriteMetrics sGlobalMetrics;
+  private static final int POSTED_NONE = 0;
+  private static final int POSTED = 1;
+  private static final int POSTED_FAVORITE = 1 << 1;
+  private static final int POSTED_SUPPRESS_LISTENER = 1 << 2;
+  // Used on the main thread only
+  private static final Rect sVisibleRect = new Rect();
 
+  private FavoriteStyle mStyle;
   private int mButtonSize;
   private int mPadding;
   private boolean mFavorite;
-  private boolean mAnimateFavorite;
-  private boolean mAnimateUnfavorite;
-  private int mFavoriteResource;
-  private int mNotFavoriteResource;
-  private int mRotationDuration;
-  private int mRotationAngle;
-  private int mBounceDuration;
-  private int mColor;
-  private int mType;
+
+  private FavoriteStateStore mStateStore;
+  private long mItemId;
+
+  private Drawable mFavoriteDrawable;
+  private Drawable mNotFavoriteDrawable;
+  private boolean mBlockLayout;
+
+  private AnimatorGraph mFavoriteAnimator;
+  private AnimatorGraph mUnfavoriteAnimator;
+  private AnimatorSet mRunningAnimator;
+  private boolean mHardwareLayerApplied;
+  private FavoriteAnimationScheduler mAnimationScheduler;
+  private boolean mScheduledAnimationRunning;
+  private final AnimatorListenerAdapter mBounceListener = new AnimatorListenerAdapter() {
+    @Override public void onAnimationStart(Animator animation) {
+      updateImage();
+    }
+  };
+  private final AnimatorListenerAdapter mAnimationEndListener = new AnimatorListenerAdapter() {
+    @Override public void onAnimationEnd(Animator animation) {
+      // Cancelled or superseded animations must not report a state that is already gone
+      if (animation != mRunningAnimator) {
+        return;
+      }
+      mRunningAnimator = null;
+      releaseHardwareLayer();
+      endAnimationMetrics();
+      notifyAnimationEnd();
+    }
+  };
 
   private OnFavoriteChangeListener mOnFavoriteChangeListener;
   private OnFavoriteAnimationEndListener mOnFavoriteAnimationEndListener;
+  private FavoriteChangeDispatcher mFavoriteChangeDispatcher;
+  // Latest entry of the button in a batch of the dispatcher, see FavoriteChangeDispatcher.Batch
+  FavoriteChangeDispatcher.Batch mBatch;
+  int mBatchIndex;
   private boolean mBroadcasting;
+  private FavoriteMetrics mMetrics;
+  private AnimationMetrics mAnimationMetrics;
+  private FavoriteCounterView mCounterView;
+
+  private FavoriteCommitter mCommitter;
+
+  private boolean mPayloadPending;
+  private boolean mPayloadFavorite;
+  private final ViewTreeObserver.OnPreDrawListener mPayloadListener =
+      new ViewTreeObserver.OnPreDrawListener() {
+        @Override public boolean onPreDraw() {
+          applyPayload(true);
+          return true;
+        }
+      };
+
+  private final AtomicInteger mPostedFavorite = new AtomicInteger(POSTED_NONE);
 
   public MaterialFavoriteButton(Context context) {
     super(context);
@@ -70,6 +123,12 @@ public class MaterialFavoriteButton extends ImageView {
     init(context, attrs);
   }
 
+  private MaterialFavoriteButton(Context context, FavoriteStyle style, boolean favorite) {
+    super(context);
+    mFavorite = favorite;
+    init(style);
+  }
+
   /**
    * Interface definition for a callback to be invoked when the favorite state is changed.
    */
@@ -115,6 +174,148 @@ public class MaterialFavoriteButton extends ImageView {
     mOnFavoriteAnimationEndListener = listener;
   }
 
+  /**
+   * Set a dispatcher collecting favorite changes of many buttons into batches. It is notified in
+   * addition to {@link OnFavoriteChangeListener}.
+   *
+   * @param dispatcher the {@link FavoriteChangeDispatcher} to notify, shared between buttons
+   */
+  public void setFavoriteChangeDispatcher(FavoriteChangeDispatcher dispatcher) {
+    mFavoriteChangeDispatcher = dispatcher;
+  }
+
+  /**
+   * Enables or disables favorite animations of all buttons, for example in tests and benchmarks.
+   * Animations are also skipped when the system animator duration scale is 0 or the button is
+   * not attached to a window.
+   *
+   * @param enabled false to apply every change right away
+   */
+  public static void setAnimationsEnabled(boolean enabled) {
+    sAnimationsEnabled = enabled;
+  }
+
+  /**
+   * Loads what the first favorite change of a button would otherwise load: drawables, path
+   * geometry and easing tables of the styles on a background thread, then the animator classes by
+   * building one throwaway animator graph on the main thread. Drawables that do not
+   * depend on the theme are shared by all contexts, so the application context is enough for the
+   * built-in icons. Custom resources referring to theme attributes are prepared only for the theme
+   * of the context, pass the activity buttons will be created in for those.
+   *
+   * @param styles styles to prepare, {@link FavoriteStyle#DEFAULT} if none are given
+   */
+  public static void prewarm(final Context context, FavoriteStyle... styles) {
+    final FavoriteStyle[] prewarmed =
+        styles.length > 0 ? styles : new FavoriteStyle[] { FavoriteStyle.DEFAULT };
+    Thread thread = new Thread(new Runnable() {
+      @Override public void run() {
+        for (FavoriteStyle style : prewarmed) {
+          prewarmResources(context, style);
+        }
+        FrameTask.getMainHandler().post(new Runnable() {
+          @Override public void run() {
+            // Animators are bound to the main looper. One graph loads and links every class a
+            // first tap needs, the graphs of real buttons are built from their own styles anyway
+            new MaterialFavoriteButton(context, prewarmed[0], false).prewarmAnimators();
+          }
+        });
+      }
+    }, "MaterialFavoriteButton-prewarm");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private static void prewarmResources(Context context, FavoriteStyle style) {
+    Drawable favorite = createDrawable(context, style, true);
+    Drawable notFavorite = createDrawable(context, style, false);
+    // Shape drawables scale their geometry for the bounds the button gives them
+    Resources resources = context.getResources();
+    int size = Utils.dpToPx(style.getSize(), resources)
+        - Utils.dpToPx(style.getPadding(), resources) * 2;
+    favorite.setBounds(0, 0, size, size);
+    notFavorite.setBounds(0, 0, size, size);
+    if (style.isPrecomputedEasing()) {
+      FavoriteTimeline.get(style.getRotationDuration(), style.getBounceDuration());
+    }
+    ACCELERATE_INTERPOLATOR.getInterpolation(0.5f);
+    OVERSHOOT_INTERPOLATOR.getInterpolation(0.5f);
+    Utils.areAnimatorsEnabled(context);
+  }
+
+  private void prewarmAnimators() {
+    new AnimatorGraph(true);
+  }
+
+  /**
+   * Set metrics receiving animation and listener timing of all buttons without their own
+   * metrics.
+   *
+   * @param metrics the {@link FavoriteMetrics} to report to, null to stop measuring
+   */
+  public static void setGlobalMetrics(FavoriteMetrics metrics) {
+    sGlobalMetrics = metrics;
+  }
+
+  /**
+   * Set metrics receiving animation and listener timing of this button, instead of the global
+   * metrics.
+   *
+   * @param metrics the {@link FavoriteMetrics} to report to, null to use the global metrics
+   */
+  public void setMetrics(FavoriteMetrics metrics) {
+    mMetrics = metrics;
+  }
+
+  /**
+   * Set a scheduler driving favorite animations of many buttons from one frame callback. It caps
+   * how many buttons animate at once and skips animation of buttons that are not on screen.
+   *
+   * @param scheduler the {@link FavoriteAnimationScheduler} to share between buttons, null to use
+   * an animator per button
+   */
+  public void setAnimationScheduler(FavoriteAnimationScheduler scheduler) {
+    finishAnimation();
+    mAnimationScheduler = scheduler;
+  }
+
+  /**
+   * Set a view counting favorites of this item. Each toggle by the user, a click or {@link
+   * #toggleFavorite()}, adds or removes one right away, before listeners are called; a rolled back
+   * commit takes it back. States set by the app, with {@link #setFavorite(boolean)}, a post, a
+   * {@link FavoritePayload}, {@link #bind} or a saved state, come with their own count: set it
+   * with {@link FavoriteCounterView#setCount(int)}.
+   *
+   * @param counterView the {@link FavoriteCounterView} to update, null to stop
+   */
+  public void setCounterView(FavoriteCounterView counterView) {
+    mCounterView = counterView;
+  }
+
+  public FavoriteCounterView getCounterView() {
+    return mCounterView;
+  }
+
+  /**
+   * Switches the button to optimistic updates: changes are shown right away and committed with
+   * the committer, at most one commit per item at a time. Failed commits roll the item back to
+   * its last committed state without animation and without calling {@link
+   * OnFavoriteChangeListener}, also after the button was rebound to another item. Changes made
+   * with {@link #setFavoriteSuppressListener(boolean)} are taken as committed.
+   *
+   * @param committer the {@link FavoriteCommitter} to commit changes with, null to stop
+   */
+  public void setFavoriteCommitter(FavoriteCommitter committer) {
+    mCommitter = committer;
+  }
+
+  /**
+   * Returns true while a commit of the item shown by this button is in flight.
+   */
+  public boolean isCommitPending() {
+    return FavoriteCommits.isPending(this);
+  }
+
   /**
    * Initialize the default values
    * <ul>
@@ -129,119 +330,217 @@ public class MaterialFavoriteButton extends ImageView {
    * <li>bounce duration = 300 ms</li>
    * <li>color of default icon = black</li>
    * <li>type of default icon = star</li>
+   * <li>reuse animators = false</li>
+   * <li>renderer = bitmap</li>
+   * <li>precomputed easing = false</li>
    * </ul>
    */
   private void init(Context context, AttributeSet attrs) {
-    mButtonSize = Utils.dpToPx(DEFAULT_BUTTON_SIZE, getResources());
-    mPadding = Utils.dpToPx(DEFAULT_PADDING, getResources());
     mFavorite = DEFAULT_FAVORITE;
-    mAnimateFavorite = DEFAULT_ANIMATE_FAVORITE;
-    mAnimateUnfavorite = DEFAULT_ANIMATE_UNFAVORITE;
-    mFavoriteResource = FAVORITE_STAR_BLACK;
-    mNotFavoriteResource = FAVORITE_STAR_BORDER_BLACK;
-    mRotationDuration = DEFAULT_ROTATION_DURATION;
-    mRotationAngle = DEFAULT_ROTATION_ANGLE;
-    mBounceDuration = DEFAULT_BOUNCE_DURATION;
-    mColor = STYLE_BLACK;
-    mType = STYLE_STAR;
-    if (!isInEditMode()) {
-      if (attrs != null) {
-        initAttributes(context, attrs);
+    FavoriteStyle style = FavoriteStyle.DEFAULT;
+    if (!isInEditMode() && attrs != null) {
+      AttributeCache.Key key = AttributeCache.key(context, attrs);
+      AttributeCache.Entry attributes = AttributeCache.get(key);
+      if (attributes == null) {
+        attributes = new AttributeCache.Entry(initAttributes(context, attrs), mFavorite);
+        AttributeCache.put(key, attributes);
       }
+      style = attributes.style;
+      mFavorite = attributes.favorite;
+    }
+    init(style);
+  }
+
+  private void init(FavoriteStyle style) {
+    if (!isInEditMode()) {
       setOnClickListener(new OnClickListener() {
         @Override public void onClick(View v) {
           toggleFavorite();
         }
       });
     }
-    if (mFavorite) {
-      setImageResource(mFavoriteResource);
-    } else {
-      setImageResource(mNotFavoriteResource);
-    }
-    setPadding(mPadding, mPadding, mPadding, mPadding);
+    setStyle(style);
   }
 
-  private void initAttributes(Context context, AttributeSet attributeSet) {
+  private FavoriteStyle initAttributes(Context context, AttributeSet attributeSet) {
+    FavoriteStyle.Builder style = new FavoriteStyle.Builder();
     TypedArray attr = getTypedArray(context, attributeSet, R.styleable.MaterialFavoriteButton);
     if (attr != null) {
       try {
-        mFavorite =
-            attr.getBoolean(R.styleable.MaterialFavoriteButton_mfb_state, mAnimateUnfavorite);
-        mButtonSize = Utils.dpToPx(
-            attr.getInt(R.styleable.MaterialFavoriteButton_mfb_size, DEFAULT_BUTTON_SIZE),
-            getResources());
-        mAnimateFavorite = attr.getBoolean(R.styleable.MaterialFavoriteButton_mfb_animate_favorite,
-            mAnimateFavorite);
-        mAnimateUnfavorite =
+        mFavorite = attr.getBoolean(R.styleable.MaterialFavoriteButton_mfb_state, mFavorite);
+        style.size(attr.getInt(R.styleable.MaterialFavoriteButton_mfb_size,
+            FavoriteStyle.DEFAULT_BUTTON_SIZE));
+        style.animateFavorite(
+            attr.getBoolean(R.styleable.MaterialFavoriteButton_mfb_animate_favorite,
+                FavoriteStyle.DEFAULT_ANIMATE_FAVORITE));
+        style.animateUnfavorite(
             attr.getBoolean(R.styleable.MaterialFavoriteButton_mfb_animate_unfavorite,
-                mAnimateUnfavorite);
-        mPadding = Utils.dpToPx(
-            attr.getInt(R.styleable.MaterialFavoriteButton_mfb_padding, DEFAULT_PADDING),
-            getResources());
-        if (attr.getResourceId(R.styleable.MaterialFavoriteButton_mfb_favorite_image, 0) != 0
-            && attr.getResourceId(R.styleable.MaterialFavoriteButton_mfb_not_favorite_image, 0)
-            != 0) {
-          mFavoriteResource =
-              attr.getResourceId(R.styleable.MaterialFavoriteButton_mfb_favorite_image,
-                  FAVORITE_STAR_BLACK);
-          mNotFavoriteResource =
-              attr.getResourceId(R.styleable.MaterialFavoriteButton_mfb_not_favorite_image,
-                  FAVORITE_STAR_BORDER_BLACK);
+                FavoriteStyle.DEFAULT_ANIMATE_UNFAVORITE));
+        style.padding(
+            attr.getInt(R.styleable.MaterialFavoriteButton_mfb_padding,
+                FavoriteStyle.DEFAULT_PADDING));
+        int favoriteResource =
+            attr.getResourceId(R.styleable.MaterialFavoriteButton_mfb_favorite_image, 0);
+        int notFavoriteResource =
+            attr.getResourceId(R.styleable.MaterialFavoriteButton_mfb_not_favorite_image, 0);
+        if (favoriteResource != 0 && notFavoriteResource != 0) {
+          style.favoriteResource(favoriteResource);
+          style.notFavoriteResource(notFavoriteResource);
         } else {
-          setTheme(attr.getInt(R.styleable.MaterialFavoriteButton_mfb_color, STYLE_BLACK),
-              attr.getInt(R.styleable.MaterialFavoriteButton_mfb_type, STYLE_STAR));
+          TypedValue color = attr.peekValue(R.styleable.MaterialFavoriteButton_mfb_color);
+          if (color == null || color.type == TypedValue.TYPE_INT_DEC) {
+            // The black or white enum
+            style.color(color != null ? color.data : STYLE_BLACK);
+          } else {
+            // A color, #00000000 and #00000001 included, never taken for the enum
+            style.argbColor(attr.getColor(R.styleable.MaterialFavoriteButton_mfb_color, 0));
+          }
+          style.type(attr.getInt(R.styleable.MaterialFavoriteButton_mfb_type, STYLE_STAR));
         }
-
-        mRotationDuration = attr.getInt(R.styleable.MaterialFavoriteButton_mfb_rotation_duration,
-            mRotationDuration);
-        mRotationAngle =
-            attr.getInt(R.styleable.MaterialFavoriteButton_mfb_rotation_angle, mRotationAngle);
-        mBounceDuration =
-            attr.getInt(R.styleable.MaterialFavoriteButton_mfb_bounce_duration, mBounceDuration);
+        style.renderer(attr.getInt(R.styleable.MaterialFavoriteButton_mfb_renderer,
+            FavoriteStyle.DEFAULT_RENDERER));
+        style.rotationDuration(
+            attr.getInt(R.styleable.MaterialFavoriteButton_mfb_rotation_duration,
+                FavoriteStyle.DEFAULT_ROTATION_DURATION));
+        style.rotationAngle(attr.getInt(R.styleable.MaterialFavoriteButton_mfb_rotation_angle,
+            FavoriteStyle.DEFAULT_ROTATION_ANGLE));
+        style.bounceDuration(attr.getInt(R.styleable.MaterialFavoriteButton_mfb_bounce_duration,
+            FavoriteStyle.DEFAULT_BOUNCE_DURATION));
+        style.reuseAnimators(
+            attr.getBoolean(R.styleable.MaterialFavoriteButton_mfb_reuse_animators,
+                FavoriteStyle.DEFAULT_REUSE_ANIMATORS));
+        style.precomputedEasing(
+            attr.getBoolean(R.styleable.MaterialFavoriteButton_mfb_precomputed_easing,
+                FavoriteStyle.DEFAULT_PRECOMPUTED_EASING));
       } finally {
         attr.recycle();
       }
     }
+    return style.build();
   }
 
   private TypedArray getTypedArray(Context context, AttributeSet attributeSet, int[] attr) {
     return context.obtainStyledAttributes(attributeSet, attr, 0, 0);
   }
 
-  private void setTheme(int color, int type) {
-    if (color == STYLE_BLACK) {
-      if (type == STYLE_STAR) {
-        mFavoriteResource = FAVORITE_STAR_BLACK;
-        mNotFavoriteResource = FAVORITE_STAR_BORDER_BLACK;
-      } else {
-        mFavoriteResource = FAVORITE_HEART_BLACK;
-        mNotFavoriteResource = FAVORITE_HEART_BORDER_BLACK;
+  /**
+   * Returns the shared style of this button.
+   */
+  public FavoriteStyle getStyle() {
+    return mStyle;
+  }
+
+  /**
+   * Replaces the style of this button. Only the parts that differ from the current style are
+   * applied: size and padding, drawables, animators.
+   *
+   * @param style the style to share, see {@link FavoriteStyle#applyTo(MaterialFavoriteButton...)}
+   * to swap style of many buttons
+   */
+  public void setStyle(FavoriteStyle style) {
+    FavoriteStyle previous = mStyle;
+    if (previous == style) {
+      return;
+    }
+    mStyle = style;
+    if (previous == null
+        || previous.getSize() != style.getSize()
+        || previous.getPadding() != style.getPadding()) {
+      mButtonSize = Utils.dpToPx(style.getSize(), getResources());
+      mPadding = Utils.dpToPx(style.getPadding(), getResources());
+      setPadding(mPadding, mPadding, mPadding, mPadding);
+      requestLayout();
+    }
+    if (previous != null && (!previous.hasSameAnimation(style)
+        || previous.isReuseAnimators() && !style.isReuseAnimators())) {
+      invalidateAnimators();
+    }
+    if (previous == null || !previous.hasSameImages(style)) {
+      mFavoriteDrawable = null;
+      mNotFavoriteDrawable = null;
+      updateImage();
+    }
+  }
+
+  /**
+   * Shows the drawable of the current state. Both state drawables are resolved once and kept, so
+   * flipping between them is a drawable swap and an invalidate. The button always measures to
+   * {@code mButtonSize}, hence the layout request a drawable change may trigger is skipped.
+   */
+  private void updateImage() {
+    Drawable drawable;
+    if (mFavorite) {
+      if (mFavoriteDrawable == null) {
+        mFavoriteDrawable = createDrawable(getContext(), mStyle, true);
       }
+      drawable = mFavoriteDrawable;
     } else {
-      if (type == STYLE_STAR) {
-        mFavoriteResource = FAVORITE_STAR_WHITE;
-        mNotFavoriteResource = FAVORITE_STAR_BORDER_WHITE;
-      } else {
-        mFavoriteResource = FAVORITE_HEART_WHITE;
-        mNotFavoriteResource = FAVORITE_HEART_BORDER_WHITE;
+      if (mNotFavoriteDrawable == null) {
+        mNotFavoriteDrawable = createDrawable(getContext(), mStyle, false);
       }
+      drawable = mNotFavoriteDrawable;
+    }
+    if (getDrawable() == drawable) {
+      return;
     }
+    mBlockLayout = true;
+    setImageDrawable(drawable);
+    mBlockLayout = false;
   }
 
-  private void setResources() {
-    if (mFavorite) {
-      setImageResource(mFavoriteResource);
-    } else {
-      setImageResource(mNotFavoriteResource);
+  /**
+   * Creates drawable of one state of the style, shared by buttons and {@link FavoriteDrawable}.
+   */
+  static Drawable createDrawable(Context context, FavoriteStyle style, boolean favorite) {
+    int resource = favorite ? style.getFavoriteResource() : style.getNotFavoriteResource();
+    if (style.hasCustomResources()) {
+      return DrawableCache.get(context, resource);
+    }
+    int color = style.getColor();
+    if (style.getRenderer() == RENDERER_VECTOR) {
+      return new FavoriteShapeDrawable(style.getType(), favorite, color);
+    }
+    if (style.getRenderer() == RENDERER_ATLAS) {
+      FavoriteAtlas atlas = FavoriteAtlas.get(context.getResources());
+      return atlas.newDrawable(style.getType(), favorite, color);
+    }
+    Drawable drawable = DrawableCache.getBuiltIn(context, resource);
+    if (color != Color.BLACK) {
+      // Mutate so the filter does not leak into the constant state shared with other buttons
+      ColorFilter colorFilter = DrawableCache.getColorFilter(color);
+      drawable = drawable.mutate();
+      drawable.setColorFilter(colorFilter);
+    }
+    return drawable;
+  }
+
+  @Override public void requestLayout() {
+    if (!mBlockLayout) {
+      super.requestLayout();
     }
   }
 
   @Override protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-    super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+    // Size never depends on the drawable or the measure specs, ImageView measuring is wasted work
     setMeasuredDimension(mButtonSize, mButtonSize);
   }
 
+  @Override protected Parcelable onSaveInstanceState() {
+    SavedState savedState = new SavedState(super.onSaveInstanceState());
+    savedState.mFavorite = mFavorite;
+    return savedState;
+  }
+
+  @Override protected void onRestoreInstanceState(Parcelable state) {
+    if (!(state instanceof SavedState)) {
+      super.onRestoreInstanceState(state);
+      return;
+    }
+    SavedState savedState = (SavedState) state;
+    super.onRestoreInstanceState(savedState.getSuperState());
+    restoreFavorite(savedState.mFavorite);
+  }
+
   /**
    * Returns favorite state.
    *
@@ -275,7 +574,7 @@ public class MaterialFavoriteButton extends ImageView {
    * @param favorite true to favorite the button, false to uncheck it
    */
   public void setFavoriteSuppressListener(boolean favorite) {
-    updateFavoriteButton(favorite, mAnimateFavorite, true);
+    updateFavoriteButton(favorite, mStyle.isAnimateFavorite(), true);
   }
 
   /**
@@ -292,7 +591,8 @@ public class MaterialFavoriteButton extends ImageView {
    * Toggle the favorite state of this button.
    */
   public void toggleFavorite() {
-    setFavorite(!mFavorite);
+    updateFavoriteButton(!mFavorite,
+        mFavorite ? mStyle.isAnimateUnfavorite() : mStyle.isAnimateFavorite(), false, true);
   }
 
   /**
@@ -301,22 +601,186 @@ public class MaterialFavoriteButton extends ImageView {
    * @param animated true to force animated toggle, false to force not animated one
    */
   public void toggleFavorite(boolean animated) {
-    if (!mFavorite) {
-      boolean orig = mAnimateFavorite;
-      mAnimateFavorite = animated;
-      setFavorite(!mFavorite);
-      mAnimateFavorite = orig;
-    } else {
-      boolean orig = mAnimateUnfavorite;
-      mAnimateUnfavorite = animated;
-      setFavorite(!mFavorite);
-      mAnimateUnfavorite = orig;
+    updateFavoriteButton(!mFavorite, animated, false, true);
+  }
+
+  /**
+   * Changes the favorite state of this button from any thread. The state is applied on the main
+   * thread before the next frame, like {@link #setFavorite(boolean)}. When the state is posted
+   * several times before that, only the last one is applied.
+   *
+   * @param favorite true to favorite the button, false to uncheck it
+   */
+  public void postFavorite(boolean favorite) {
+    post(favorite ? POSTED | POSTED_FAVORITE : POSTED);
+  }
+
+  /**
+   * Changes the favorite state of this button from any thread without calling
+   * OnFavoriteChangeListener, see {@link #postFavorite(boolean)}. The change is not animated.
+   *
+   * @param favorite true to favorite the button, false to uncheck it
+   */
+  public void postFavoriteSuppressListener(boolean favorite) {
+    post(favorite ? POSTED | POSTED_FAVORITE | POSTED_SUPPRESS_LISTENER
+        : POSTED | POSTED_SUPPRESS_LISTENER);
+  }
+
+  /**
+   * Applies a state changed outside the button, see {@link FavoritePayload}. RecyclerView binds
+   * payloads during layout, while the row is detached from the list, so whether the button is on
+   * screen is decided right before the next draw: then a visible button animates as configured by
+   * the style and any other jumps to the state. Never calls OnFavoriteChangeListener. The counter
+   * is left as it is, the change is not one more or one less favorite of this user.
+   */
+  void applyFavorite(boolean favorite) {
+    mPostedFavorite.set(POSTED_NONE);
+    if (getWindowToken() == null) {
+      dropPayload();
+      updateFavoriteButton(favorite, false, true, false);
+      return;
+    }
+    mPayloadFavorite = favorite;
+    if (!mPayloadPending) {
+      mPayloadPending = true;
+      getViewTreeObserver().addOnPreDrawListener(mPayloadListener);
+      // Outside of a layout pass nothing may be scheduled to draw yet
+      invalidate();
+    }
+  }
+
+  private void applyPayload(boolean canAnimate) {
+    if (!mPayloadPending) {
+      return;
+    }
+    dropPayload();
+    boolean favorite = mPayloadFavorite;
+    boolean animate = favorite ? mStyle.isAnimateFavorite() : mStyle.isAnimateUnfavorite();
+    updateFavoriteButton(favorite, canAnimate && animate && isOnScreen(), true, false);
+  }
+
+  /**
+   * Forgets a payload waiting for the next draw, a later state replaces it.
+   */
+  private void dropPayload() {
+    if (mPayloadPending) {
+      mPayloadPending = false;
+      getViewTreeObserver().removeOnPreDrawListener(mPayloadListener);
+    }
+  }
+
+  private boolean isOnScreen() {
+    return getWindowToken() != null && isShown() && getGlobalVisibleRect(sVisibleRect);
+  }
+
+  @Override protected void onDetachedFromWindow() {
+    // Still attached to the observer of the window here, the pending state must not get lost
+    applyPayload(false);
+    super.onDetachedFromWindow();
+  }
+
+  private void post(int posted) {
+    // Only the post that finds no pending state queues the button, later ones just replace it
+    if (mPostedFavorite.getAndSet(posted) == POSTED_NONE) {
+      FavoriteUpdateQueue.enqueue(this);
+    }
+  }
+
+  /**
+   * Applies the latest posted state, called by {@link FavoriteUpdateQueue} on the main thread.
+   */
+  void applyPostedFavorite() {
+    int posted = mPostedFavorite.getAndSet(POSTED_NONE);
+    if (posted == POSTED_NONE) {
+      return;
+    }
+    updateFavoriteButton((posted & POSTED_FAVORITE) != 0, false,
+        (posted & POSTED_SUPPRESS_LISTENER) != 0);
+  }
+
+  /**
+   * Binds the button to an item of a list. The button shows the item's state from the store
+   * immediately, without animation and without calling listeners, and writes its changes back
+   * to the store. Call it from {@code onBindViewHolder} instead of {@link #setFavorite(boolean)}.
+   * A state posted for the previous item and not applied yet is dropped.
+   *
+   * @param store favorite states of the list items
+   * @param itemId id of the item shown by this button
+   */
+  public void bind(FavoriteStateStore store, long itemId) {
+    mStateStore = store;
+    mItemId = itemId;
+    mPostedFavorite.set(POSTED_NONE);
+    applyState(store.isFavorite(itemId));
+  }
+
+  /**
+   * Detaches the button from the store it was bound to. The favorite state is left as is.
+   */
+  public void unbind() {
+    mStateStore = null;
+  }
+
+  /**
+   * Returns id of the item the button is bound to, meaningful only while {@link
+   * #getStateStore()} is not null.
+   */
+  public long getBoundItemId() {
+    return mItemId;
+  }
+
+  /**
+   * Returns the store the button is bound to, or null.
+   */
+  public FavoriteStateStore getStateStore() {
+    return mStateStore;
+  }
+
+  /**
+   * Restores a saved state: no animation, no listeners. A bound button also restores the state
+   * in its store, a committer takes it as committed.
+   */
+  void restoreFavorite(boolean favorite) {
+    if (mStateStore != null) {
+      mStateStore.setFavorite(mItemId, favorite);
     }
+    mPostedFavorite.set(POSTED_NONE);
+    applyState(favorite);
+    FavoriteCommits.onSettled(this, favorite);
+  }
+
+  /**
+   * Shows the state right away: no animation, no listeners.
+   */
+  private void applyState(boolean favorite) {
+    dropPayload();
+    cancelAnimation();
+    mFavorite = favorite;
+    updateImage();
   }
 
   private void updateFavoriteButton(boolean favorite, boolean animate, boolean suppressOnChange) {
+    updateFavoriteButton(favorite, animate, suppressOnChange, false);
+  }
+
+  private void updateFavoriteButton(boolean favorite, boolean animate, boolean suppressOnChange,
+      boolean count) {
+    dropPayload();
     if (mFavorite != favorite) {
+      long changeNanos = getMetrics() != null ? System.nanoTime() : 0;
       mFavorite = favorite;
+      if (mCounterView != null && count) {
+        mCounterView.onFavoriteChanged(favorite);
+      }
+      if (mStateStore != null) {
+        mStateStore.setFavorite(mItemId, favorite);
+      }
+      if (mFavoriteChangeDispatcher != null && !suppressOnChange) {
+        mFavoriteChangeDispatcher.onFavoriteChanged(this, favorite);
+      }
+      if (suppressOnChange) {
+        FavoriteCommits.onSettled(this, favorite);
+      }
       // Avoid infinite recursions if setChecked() is called from a listener
       if (mBroadcasting) {
         return;
@@ -324,80 +788,348 @@ public class MaterialFavoriteButton extends ImageView {
 
       mBroadcasting = true;
       if (mOnFavoriteChangeListener != null && !suppressOnChange) {
-        mOnFavoriteChangeListener.onFavoriteChanged(this, mFavorite);
+        notifyFavoriteChanged();
       }
-      if (favorite) {
-        if (animate) {
-          animateButton(favorite);
-        } else {
-          super.setImageResource(mFavoriteResource);
-          if (mOnFavoriteAnimationEndListener != null) {
-            mOnFavoriteAnimationEndListener.onAnimationEnd(this, mFavorite);
-          }
+      if (animate && canAnimate()) {
+        animateButton(favorite, changeNanos);
+      } else {
+        cancelAnimation();
+        updateImage();
+        notifyAnimationEnd();
+      }
+      mBroadcasting = false;
+      // Committed last, a committer completing synchronously may roll the change back
+      if (mCommitter != null && !suppressOnChange) {
+        FavoriteCommits.onChanged(this, mCommitter, favorite);
+      }
+    }
+  }
+
+  /**
+   * Puts an item back to its last committed state after a failed commit. The button may show
+   * another item by now, then only the store and the dispatcher see the rollback.
+   *
+   * @param store store of the item, null if the item is this unbound button
+   */
+  void rollbackFavorite(FavoriteStateStore store, long itemId, boolean favorite) {
+    if (store != null) {
+      store.setFavorite(itemId, favorite);
+    }
+    if (mFavoriteChangeDispatcher != null) {
+      mFavoriteChangeDispatcher.onFavoriteChanged(this, store, itemId, favorite);
+    }
+    boolean shown = store != null ? store == mStateStore && itemId == mItemId : mStateStore == null;
+    if (shown && mFavorite != favorite) {
+      if (mCounterView != null) {
+        mCounterView.onFavoriteChanged(favorite);
+      }
+      applyState(favorite);
+    }
+  }
+
+  /**
+   * Returns true if an animation would be visible. Otherwise the change is applied right away,
+   * without building animators that the framework would skip anyway.
+   */
+  private boolean canAnimate() {
+    return getWindowToken() != null && areAnimationsEnabled(getContext());
+  }
+
+  /**
+   * Returns false if animations are disabled globally or by the system animator duration scale.
+   */
+  static boolean areAnimationsEnabled(Context context) {
+    return sAnimationsEnabled && Utils.areAnimatorsEnabled(context);
+  }
+
+  private void animateButton(boolean toFavorite, long changeNanos) {
+    // Retarget an interrupted animation from where the rotation currently is, so at most one
+    // animator drives rotation and scale at any time
+    int angle = mStyle.getRotationAngle();
+    float fromAngle = 0;
+    if (mRunningAnimator != null || mScheduledAnimationRunning) {
+      fromAngle = Utils.retargetAngle(getRotation(), toFavorite ? angle : -angle);
+      cancelAnimation();
+      setRotation(fromAngle);
+    }
+
+    if (mAnimationScheduler != null) {
+      if (mAnimationScheduler.start(this, toFavorite, fromAngle)) {
+        mScheduledAnimationRunning = true;
+        applyHardwareLayer();
+        startAnimationMetrics(changeNanos);
+      } else {
+        setRotation(toFavorite ? angle : -angle);
+        updateImage();
+        notifyAnimationEnd();
+      }
+      return;
+    }
+
+    AnimatorGraph animator;
+    if (mStyle.isReuseAnimators()) {
+      if (toFavorite) {
+        if (mFavoriteAnimator == null) {
+          mFavoriteAnimator = new AnimatorGraph(true);
         }
+        animator = mFavoriteAnimator;
       } else {
-        if (animate) {
-          animateButton(favorite);
-        } else {
-          super.setImageResource(mNotFavoriteResource);
-          if (mOnFavoriteAnimationEndListener != null) {
-            mOnFavoriteAnimationEndListener.onAnimationEnd(this, mFavorite);
-          }
+        if (mUnfavoriteAnimator == null) {
+          mUnfavoriteAnimator = new AnimatorGraph(false);
         }
+        animator = mUnfavoriteAnimator;
       }
-      mBroadcasting = false;
+    } else {
+      animator = new AnimatorGraph(toFavorite);
     }
+    animator.start(fromAngle);
+    startAnimationMetrics(changeNanos);
   }
 
-  private void animateButton(boolean toFavorite) {
-    final int startAngle = 0;
-    int endAngle;
-    float startBounce;
-    float endBounce;
-    if (toFavorite) {
-      endAngle = mRotationAngle;
-      startBounce = 0.2f;
-      endBounce = 1.0f;
+  /**
+   * Cancels running animation without notifying OnFavoriteAnimationEndListener and puts the button
+   * back to its resting rotation and scale.
+   *
+   * @return true if an animation was running
+   */
+  private boolean cancelAnimation() {
+    if (mScheduledAnimationRunning) {
+      mScheduledAnimationRunning = false;
+      mAnimationScheduler.cancel(this);
+    } else if (mRunningAnimator != null) {
+      AnimatorSet running = mRunningAnimator;
+      mRunningAnimator = null;
+      running.cancel();
     } else {
-      endAngle = -mRotationAngle;
-      startBounce = 1.3f;
-      endBounce = 1.0f;
-    }
-
-    AnimatorSet animatorSet = new AnimatorSet();
-    ObjectAnimator rotationAnim = ObjectAnimator.ofFloat(this, "rotation", startAngle, endAngle);
-    rotationAnim.setDuration(mRotationDuration);
-    rotationAnim.setInterpolator(ACCELERATE_INTERPOLATOR);
-
-    ObjectAnimator bounceAnimX = ObjectAnimator.ofFloat(this, "scaleX", startBounce, endBounce);
-    bounceAnimX.setDuration(mBounceDuration);
-    bounceAnimX.setInterpolator(OVERSHOOT_INTERPOLATOR);
-
-    ObjectAnimator bounceAnimY = ObjectAnimator.ofFloat(this, "scaleY", startBounce, endBounce);
-    bounceAnimY.setDuration(mBounceDuration);
-    bounceAnimY.setInterpolator(OVERSHOOT_INTERPOLATOR);
-    bounceAnimY.addListener(new AnimatorListenerAdapter() {
-      @Override public void onAnimationStart(Animator animation) {
-        if (mFavorite) {
-          setImageResource(mFavoriteResource);
-        } else {
-          setImageResource(mNotFavoriteResource);
-        }
+      return false;
+    }
+    if (mAnimationMetrics != null) {
+      mAnimationMetrics.cancel();
+    }
+    releaseHardwareLayer();
+    setRotation(0);
+    setScaleX(1.0f);
+    setScaleY(1.0f);
+    return true;
+  }
+
+  /**
+   * Stops a running animation that is not restarted afterwards: the icon of the current state is
+   * shown, the bounce may not have swapped it yet, and the end listener is called for the state.
+   */
+  private void finishAnimation() {
+    if (cancelAnimation()) {
+      updateImage();
+      notifyAnimationEnd();
+    }
+  }
+
+  void onScheduledBounceStart() {
+    updateImage();
+  }
+
+  void onScheduledAnimationEnd() {
+    mScheduledAnimationRunning = false;
+    releaseHardwareLayer();
+    endAnimationMetrics();
+    notifyAnimationEnd();
+  }
+
+  private FavoriteMetrics getMetrics() {
+    return mMetrics != null ? mMetrics : sGlobalMetrics;
+  }
+
+  private void startAnimationMetrics(long changeNanos) {
+    FavoriteMetrics metrics = getMetrics();
+    if (metrics == null) {
+      return;
+    }
+    if (mAnimationMetrics == null) {
+      mAnimationMetrics = new AnimationMetrics(this);
+    }
+    mAnimationMetrics.start(metrics, changeNanos);
+  }
+
+  private void endAnimationMetrics() {
+    if (mAnimationMetrics != null) {
+      mAnimationMetrics.end(mStyle.getRotationDuration() + mStyle.getBounceDuration());
+    }
+  }
+
+  private void notifyFavoriteChanged() {
+    FavoriteMetrics metrics = getMetrics();
+    if (metrics == null) {
+      mOnFavoriteChangeListener.onFavoriteChanged(this, mFavorite);
+      return;
+    }
+    long start = System.nanoTime();
+    mOnFavoriteChangeListener.onFavoriteChanged(this, mFavorite);
+    metrics.onListenerCalled(this, FavoriteMetrics.LISTENER_FAVORITE_CHANGE,
+        System.nanoTime() - start);
+  }
+
+  private void notifyAnimationEnd() {
+    if (mOnFavoriteAnimationEndListener == null) {
+      return;
+    }
+    FavoriteMetrics metrics = getMetrics();
+    if (metrics == null) {
+      mOnFavoriteAnimationEndListener.onAnimationEnd(this, mFavorite);
+      return;
+    }
+    long start = System.nanoTime();
+    mOnFavoriteAnimationEndListener.onAnimationEnd(this, mFavorite);
+    metrics.onListenerCalled(this, FavoriteMetrics.LISTENER_ANIMATION_END,
+        System.nanoTime() - start);
+  }
+
+  /**
+   * Renders the button into a hardware layer while it animates, so rotation and scale frames only
+   * re-composite the layer instead of redrawing the drawable. Buttons that already have a layer
+   * type set by the app are left alone.
+   */
+  private void applyHardwareLayer() {
+    if (getLayerType() == LAYER_TYPE_NONE) {
+      setLayerType(LAYER_TYPE_HARDWARE, null);
+      mHardwareLayerApplied = true;
+    }
+  }
+
+  private void releaseHardwareLayer() {
+    if (mHardwareLayerApplied) {
+      mHardwareLayerApplied = false;
+      setLayerType(LAYER_TYPE_NONE, null);
+    }
+  }
+
+  /**
+   * Creates float animator for a view property. Typed {@link Property} objects set values
+   * directly instead of resolving setters by reflection, they are available since API 14.
+   */
+  private ObjectAnimator ofFloat(String propertyName, float start, float end) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+      return ObjectAnimator.ofFloat(this, viewProperty(propertyName), start, end);
+    }
+    return ObjectAnimator.ofFloat(this, propertyName, start, end);
+  }
+
+  @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+  private static Property<View, Float> viewProperty(String propertyName) {
+    if ("rotation".equals(propertyName)) {
+      return View.ROTATION;
+    } else if ("scaleX".equals(propertyName)) {
+      return View.SCALE_X;
+    } else {
+      return View.SCALE_Y;
+    }
+  }
+
+  /**
+   * Drops cached animator graphs, they will be rebuilt with the current configuration on the next
+   * animated change.
+   */
+  private void invalidateAnimators() {
+    finishAnimation();
+    mFavoriteAnimator = null;
+    mUnfavoriteAnimator = null;
+  }
+
+  /**
+   * Rotation-then-bounce animator graph for one direction. Bounce values only depend on the
+   * direction, rotation only changes its start value when an animation is interrupted, so a built
+   * graph can be started again as long as rotation angle and durations stay the same.
+   */
+  private final class AnimatorGraph {
+    private final AnimatorSet mAnimatorSet;
+    private final ObjectAnimator mRotationAnim;
+    private final int mEndAngle;
+    private float mStartAngle;
+
+    AnimatorGraph(boolean toFavorite) {
+      float startBounce;
+      float endBounce;
+      FavoriteStyle style = mStyle;
+      if (toFavorite) {
+        mEndAngle = style.getRotationAngle();
+        startBounce = 0.2f;
+        endBounce = 1.0f;
+      } else {
+        mEndAngle = -style.getRotationAngle();
+        startBounce = 1.3f;
+        endBounce = 1.0f;
       }
-    });
+      mStartAngle = 0;
 
-    animatorSet.play(rotationAnim);
-    animatorSet.play(bounceAnimX).with(bounceAnimY).after(rotationAnim);
+      TimeInterpolator rotationInterpolator = ACCELERATE_INTERPOLATOR;
+      TimeInterpolator bounceInterpolator = OVERSHOOT_INTERPOLATOR;
+      if (style.isPrecomputedEasing()) {
+        FavoriteTimeline timeline =
+            FavoriteTimeline.get(style.getRotationDuration(), style.getBounceDuration());
+        rotationInterpolator = timeline.getRotationInterpolator();
+        bounceInterpolator = timeline.getBounceInterpolator();
+      }
 
-    animatorSet.addListener(new AnimatorListenerAdapter() {
-      @Override public void onAnimationEnd(Animator animation) {
-        if (mOnFavoriteAnimationEndListener != null) {
-          mOnFavoriteAnimationEndListener.onAnimationEnd(MaterialFavoriteButton.this, mFavorite);
-        }
+      mAnimatorSet = new AnimatorSet();
+      mRotationAnim = ofFloat("rotation", mStartAngle, mEndAngle);
+      mRotationAnim.setDuration(style.getRotationDuration());
+      mRotationAnim.setInterpolator(rotationInterpolator);
+
+      ObjectAnimator bounceAnimX = ofFloat("scaleX", startBounce, endBounce);
+      bounceAnimX.setDuration(style.getBounceDuration());
+      bounceAnimX.setInterpolator(bounceInterpolator);
+
+      ObjectAnimator bounceAnimY = ofFloat("scaleY", startBounce, endBounce);
+      bounceAnimY.setDuration(style.getBounceDuration());
+      bounceAnimY.setInterpolator(bounceInterpolator);
+      bounceAnimY.addListener(mBounceListener);
+
+      mAnimatorSet.play(mRotationAnim);
+      mAnimatorSet.play(bounceAnimX).with(bounceAnimY).after(mRotationAnim);
+
+      mAnimatorSet.addListener(mAnimationEndListener);
+    }
+
+    void start(float fromAngle) {
+      if (fromAngle != mStartAngle) {
+        mStartAngle = fromAngle;
+        mRotationAnim.setFloatValues(fromAngle, mEndAngle);
       }
-    });
+      mRunningAnimator = mAnimatorSet;
+      applyHardwareLayer();
+      mAnimatorSet.start();
+    }
+  }
+
+  /**
+   * Saved favorite state of a button.
+   */
+  static class SavedState extends BaseSavedState {
+    boolean mFavorite;
 
-    animatorSet.start();
+    SavedState(Parcelable superState) {
+      super(superState);
+    }
+
+    private SavedState(Parcel in) {
+      super(in);
+      mFavorite = in.readInt() != 0;
+    }
+
+    @Override public void writeToParcel(Parcel out, int flags) {
+      super.writeToParcel(out, flags);
+      out.writeInt(mFavorite ? 1 : 0);
+    }
+
+    public static final Parcelable.Creator<SavedState> CREATOR =
+        new Parcelable.Creator<SavedState>() {
+          @Override public SavedState createFromParcel(Parcel in) {
+            return new SavedState(in);
+          }
+
+          @Override public SavedState[] newArray(int size) {
+            return new SavedState[size];
+          }
+        };
   }
 
   /**
@@ -406,31 +1138,29 @@ public class MaterialFavoriteButton extends ImageView {
   public static final class Builder {
     private final Context context;
 
-    private int mButtonSize = DEFAULT_BUTTON_SIZE;
-    private int mPadding = DEFAULT_PADDING;
+    private FavoriteStyle.Builder mStyle =
+        new FavoriteStyle.Builder().color(STYLE_WHITE).type(STYLE_STAR);
     private boolean mFavorite = DEFAULT_FAVORITE;
-    private boolean mAnimateFavorite = DEFAULT_ANIMATE_FAVORITE;
-    private boolean mAnimateUnfavorite = DEFAULT_ANIMATE_UNFAVORITE;
-    private int mFavoriteResource = FAVORITE_STAR_BLACK;
-    private int mNotFavoriteResource = FAVORITE_STAR_BORDER_BLACK;
-    private int mRotationDuration = DEFAULT_ROTATION_DURATION;
-    private int mRotationAngle = DEFAULT_ROTATION_ANGLE;
-    private int mBounceDuration = DEFAULT_BOUNCE_DURATION;
-    private int mColor = STYLE_WHITE;
-    private int mType = STYLE_BLACK;
-    private boolean mCustomResources = false;
 
     public Builder(Context context) {
       this.context = context;
     }
 
+    /**
+     * Starts from a shared style, values set afterwards are applied on top of it.
+     */
+    public Builder style(FavoriteStyle style) {
+      this.mStyle = style.buildUpon();
+      return this;
+    }
+
     public Builder size(int size) {
-      this.mButtonSize = size;
+      mStyle.size(size);
       return this;
     }
 
     public Builder padding(int padding) {
-      this.mPadding = padding;
+      mStyle.padding(padding);
       return this;
     }
 
@@ -440,120 +1170,164 @@ public class MaterialFavoriteButton extends ImageView {
     }
 
     public Builder animateFavorite(boolean animation) {
-      this.mAnimateFavorite = animation;
+      mStyle.animateFavorite(animation);
       return this;
     }
 
     public Builder animateUnfavorite(boolean animation) {
-      this.mAnimateUnfavorite = animation;
+      mStyle.animateUnfavorite(animation);
       return this;
     }
 
     public Builder favoriteResource(int resource) {
-      this.mFavoriteResource = resource;
-      mCustomResources = true;
+      mStyle.favoriteResource(resource);
       return this;
     }
 
     public Builder notFavoriteResource(int recsource) {
-      this.mNotFavoriteResource = recsource;
-      mCustomResources = true;
+      mStyle.notFavoriteResource(recsource);
       return this;
     }
 
     public Builder rotationDuration(int rotationDuration) {
-      this.mRotationDuration = rotationDuration;
+      mStyle.rotationDuration(rotationDuration);
       return this;
     }
 
     public Builder rotationAngle(int rotationAngle) {
-      this.mRotationAngle = rotationAngle;
+      mStyle.rotationAngle(rotationAngle);
       return this;
     }
 
     public Builder bounceDuration(int bounceDuration) {
-      this.mBounceDuration = bounceDuration;
+      mStyle.bounceDuration(bounceDuration);
       return this;
     }
 
     public Builder color(int color) {
-      this.mColor = color;
-      mCustomResources = false;
+      mStyle.color(color);
+      return this;
+    }
+
+    public Builder argbColor(int color) {
+      mStyle.argbColor(color);
       return this;
     }
 
     public Builder type(int type) {
-      this.mType = type;
-      mCustomResources = false;
+      mStyle.type(type);
       return this;
     }
 
-    public MaterialFavoriteButton create() {
-      MaterialFavoriteButton materialFavoriteButton = new MaterialFavoriteButton(context);
-      materialFavoriteButton.setSize(mButtonSize);
-      materialFavoriteButton.setPadding(mPadding);
-      materialFavoriteButton.setFavorite(mFavorite, false);
-      materialFavoriteButton.setAnimateFavorite(mAnimateFavorite);
-      materialFavoriteButton.setAnimateUnfavorite(mAnimateUnfavorite);
-      materialFavoriteButton.setFavoriteResource(mFavoriteResource);
-      materialFavoriteButton.setNotFavoriteResource(mNotFavoriteResource);
-      materialFavoriteButton.setRotationDuration(mRotationDuration);
-      materialFavoriteButton.setRotationAngle(mRotationAngle);
-      materialFavoriteButton.setBounceDuration(mBounceDuration);
-      if (!mCustomResources) {
-        materialFavoriteButton.setColor(mColor);
-        materialFavoriteButton.setType(mType);
-      }
-      materialFavoriteButton.setResources();
+    public Builder reuseAnimators(boolean reuseAnimators) {
+      mStyle.reuseAnimators(reuseAnimators);
+      return this;
+    }
 
-      return materialFavoriteButton;
+    public Builder renderer(int renderer) {
+      mStyle.renderer(renderer);
+      return this;
+    }
+
+    public Builder precomputedEasing(boolean precomputedEasing) {
+      mStyle.precomputedEasing(precomputedEasing);
+      return this;
+    }
+
+    /**
+     * Creates a button. Buttons created by the same builder share one style instance.
+     */
+    public MaterialFavoriteButton create() {
+      return new MaterialFavoriteButton(context, mStyle.build(), mFavorite);
     }
   }
 
   public void setSize(int size) {
-    this.mButtonSize = Utils.dpToPx(size, getResources());
+    setStyle(mStyle.buildUpon().size(size).build());
   }
 
   public void setPadding(int padding) {
-    this.mPadding = Utils.dpToPx(padding, getResources());
-    setPadding(mPadding, mPadding, mPadding, mPadding);
+    setStyle(mStyle.buildUpon().padding(padding).build());
   }
 
   public void setAnimateFavorite(boolean animation) {
-    this.mAnimateFavorite = animation;
+    setStyle(mStyle.buildUpon().animateFavorite(animation).build());
   }
 
   public void setAnimateUnfavorite(boolean animation) {
-    this.mAnimateUnfavorite = animation;
+    setStyle(mStyle.buildUpon().animateUnfavorite(animation).build());
   }
 
   public void setFavoriteResource(int favoriteResource) {
-    this.mFavoriteResource = favoriteResource;
+    setStyle(mStyle.buildUpon().favoriteResource(favoriteResource).build());
   }
 
   public void setNotFavoriteResource(int notFavoriteResource) {
-    this.mNotFavoriteResource = notFavoriteResource;
+    setStyle(mStyle.buildUpon().notFavoriteResource(notFavoriteResource).build());
   }
 
   public void setRotationDuration(int rotationDuration) {
-    this.mRotationDuration = rotationDuration;
+    setStyle(mStyle.buildUpon().rotationDuration(rotationDuration).build());
   }
 
   public void setRotationAngle(int rotationAngle) {
-    this.mRotationAngle = rotationAngle;
+    setStyle(mStyle.buildUpon().rotationAngle(rotationAngle).build());
   }
 
   public void setBounceDuration(int bounceDuration) {
-    this.mBounceDuration = bounceDuration;
+    setStyle(mStyle.buildUpon().bounceDuration(bounceDuration).build());
+  }
+
+  /**
+   * Builds favorite and unfavorite animators once and starts the same instances on every
+   * animated change instead of allocating new ones.
+   *
+   * @param reuseAnimators true to keep animators between changes
+   */
+  public void setReuseAnimators(boolean reuseAnimators) {
+    setStyle(mStyle.buildUpon().reuseAnimators(reuseAnimators).build());
   }
 
+  /**
+   * Sets color of the built-in icons.
+   *
+   * @param color {@link #STYLE_BLACK}, {@link #STYLE_WHITE} or an ARGB color, use {@link
+   * #setArgbColor(int)} for the transparent colors sharing their values
+   */
   public void setColor(int color) {
-    this.mColor = color;
-    setTheme(color, mType);
+    setStyle(mStyle.buildUpon().color(color).build());
+  }
+
+  /**
+   * Sets color of the built-in icons, the value is always taken as ARGB color.
+   */
+  public void setArgbColor(int color) {
+    setStyle(mStyle.buildUpon().argbColor(color).build());
   }
 
   public void setType(int type) {
-    this.mType = type;
-    setTheme(mColor, type);
+    setStyle(mStyle.buildUpon().type(type).build());
+  }
+
+  /**
+   * Selects how the built-in star and heart are drawn. Custom favorite and not favorite resources
+   * are always drawn from resources.
+   *
+   * @param renderer {@link #RENDERER_BITMAP} for the bundled bitmaps, {@link #RENDERER_VECTOR} to
+   * draw shapes from path geometry at the button's actual size, {@link #RENDERER_ATLAS} to draw
+   * the bundled bitmaps from one shared bitmap
+   */
+  public void setRenderer(int renderer) {
+    setStyle(mStyle.buildUpon().renderer(renderer).build());
+  }
+
+  /**
+   * Reads rotation and bounce curves from lookup tables shared by all buttons with the same
+   * durations, instead of evaluating the interpolators every frame.
+   *
+   * @param precomputedEasing true to use lookup tables
+   */
+  public void setPrecomputedEasing(boolean precomputedEasing) {
+    setStyle(mStyle.buildUpon().precomputedEasing(precomputedEasing).build());
   }
-}
\ No newline at end of file
+}
@@ -1,15 +1,140 @@
 package com.github.ivbaranov.mfb;
 
+import android.animation.ValueAnimator;
+import android.annotation.TargetApi;
+import android.content.ContentResolver;
+import android.content.Context;
 import android.content.res.Resources;
-import android.util.TypedValue;
+import android.database.ContentObserver;
+import android.os.Build;
+import android.provider.Settings;
+import java.lang.ref.WeakReference;
 
 public class Utils {
+  private static final float SCALE_UNKNOWN = -1;
+
+  private static volatile Density sDensity;
+  private static volatile float sAnimatorDurationScale = SCALE_UNKNOWN;
+  private static int sAnimatorDurationScaleGeneration;
+  private static ContentObserver sAnimatorDurationScaleObserver;
+
   /**
    * Convert Dp to Pixel
    */
   public static int dpToPx(float dp, Resources resources) {
-    float px =
-        TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp, resources.getDisplayMetrics());
+    float px = dp * getDensity(resources);
     return (int) px;
   }
+
+  /**
+   * Returns display density factor of the resources. The factor of the last used resources is
+   * cached until the next configuration change.
+   */
+  static float getDensity(Resources resources) {
+    Density density = sDensity;
+    if (density == null || density.mResources.get() != resources) {
+      density = new Density(resources);
+      sDensity = density;
+    }
+    return density.mDensity;
+  }
+
+  /**
+   * Returns false if the system animator duration scale is 0, in which case animators jump to
+   * their end values and building them is wasted work.
+   */
+  static boolean areAnimatorsEnabled(Context context) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      return ValueAnimator.areAnimatorsEnabled();
+    }
+    return getAnimatorDurationScale(context) != 0;
+  }
+
+  /**
+   * Returns the system animator duration scale. Below API 26 the setting is read once and cached
+   * until an observer sees it change, instead of querying settings on every tap.
+   */
+  static float getAnimatorDurationScale(Context context) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+      return ValueAnimator.getDurationScale();
+    }
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+      float scale = sAnimatorDurationScale;
+      return scale != SCALE_UNKNOWN ? scale : readAnimatorDurationScale(context);
+    }
+    return 1.0f;
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+  private static float readAnimatorDurationScale(Context context) {
+    ContentResolver resolver = context.getApplicationContext().getContentResolver();
+    int generation;
+    synchronized (Utils.class) {
+      if (sAnimatorDurationScaleObserver == null) {
+        sAnimatorDurationScaleObserver = new ContentObserver(FrameTask.getMainHandler()) {
+          @Override public void onChange(boolean selfChange) {
+            synchronized (Utils.class) {
+              sAnimatorDurationScaleGeneration++;
+              sAnimatorDurationScale = SCALE_UNKNOWN;
+            }
+          }
+        };
+        resolver.registerContentObserver(
+            Settings.Global.getUriFor(Settings.Global.ANIMATOR_DURATION_SCALE), false,
+            sAnimatorDurationScaleObserver);
+      }
+      generation = sAnimatorDurationScaleGeneration;
+    }
+    float scale =
+        Settings.Global.getFloat(resolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1.0f);
+    synchronized (Utils.class) {
+      // A change observed while reading may have made the value stale already
+      if (generation == sAnimatorDurationScaleGeneration) {
+        sAnimatorDurationScale = scale;
+      }
+    }
+    return scale;
+  }
+
+  /**
+   * Returns the angle to restart a rotation towards {@code endAngle} from, when the running one is
+   * interrupted at {@code rotation}. The angle looks the same as the rotation, modulo a full turn,
+   * and is never further from the end than a fresh rotation from 0, turning back a little if that
+   * is shorter. Angles under 180 degrees can leave no such angle, the rotation then restarts from
+   * 0.
+   */
+  static float retargetAngle(float rotation, float endAngle) {
+    float travel = Math.abs(endAngle);
+    float direction = endAngle < 0 ? -1 : 1;
+    // Distance left in the direction of travel, in (0, 360]
+    float forward = (direction * (endAngle - rotation)) % 360;
+    if (forward <= 0) {
+      forward += 360;
+    }
+    if (forward <= travel) {
+      return endAngle - direction * forward;
+    }
+    float backward = 360 - forward;
+    if (backward <= travel) {
+      return endAngle + direction * backward;
+    }
+    return 0;
+  }
+
+  /**
+   * Drops cached density factor, called when configuration changes.
+   */
+  static void resetDensity() {
+    sDensity = null;
+  }
+
+  private static final class Density {
+    private final WeakReference<Resources> mResources;
+    private final float mDensity;
+
+    Density(Resources resources) {
+      mResources = new WeakReference<Resources>(resources);
+      mDensity = resources.getDisplayMetrics().density;
+    }
+  }
 }
@@ -0,0 +1,169 @@
+package com.github.ivbaranov.mfb;
+
+import android.app.Activity;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class FavoriteChangeDispatcherTest {
+  private Activity mActivity;
+  private ManualFrameTask mFrameTask;
+  private FavoriteChangeDispatcher mDispatcher;
+  private final List<List<String>> mBatches = new ArrayList<List<String>>();
+  private final List<FavoriteStateStore> mStores = new ArrayList<FavoriteStateStore>();
+
+  @Before public void setUp() {
+    mActivity = Robolectric.setupActivity(Activity.class);
+    mFrameTask = new ManualFrameTask();
+    mDispatcher = new FavoriteChangeDispatcher(
+        new FavoriteChangeDispatcher.OnFavoriteBatchListener() {
+          @Override public void onFavoritesChanged(FavoriteChangeDispatcher.Batch batch) {
+            List<String> changes = new ArrayList<String>();
+            for (int i = 0; i < batch.size(); i++) {
+              changes.add(describe(batch, i));
+            }
+            // Entries come in no promised order
+            Collections.sort(changes);
+            mBatches.add(changes);
+          }
+        }, 0, mFrameTask);
+    mFrameTask.mDispatcher = mDispatcher;
+  }
+
+  @Test public void changesThatCancelOutAreDropped() {
+    MaterialFavoriteButton a = button("a");
+    MaterialFavoriteButton b = button("b");
+    a.setFavorite(true);
+    b.setFavorite(true);
+    a.setFavorite(false);
+    assertTrue(mFrameTask.mFramePending);
+
+    mFrameTask.runFrame();
+    assertBatches(Arrays.asList("b=true"));
+
+    // Nothing left once every change cancels out
+    a.setFavorite(true);
+    a.setFavorite(false);
+    mFrameTask.runFrame();
+    assertEquals(1, mBatches.size());
+  }
+
+  @Test public void rebindsKeepOneEntryPerItem() {
+    FavoriteStateStore store = store();
+    FavoriteStateStore otherStore = store();
+    MaterialFavoriteButton button = button("a");
+    button.bind(store, 1);
+    button.toggleFavorite();
+    button.bind(store, 2);
+    button.toggleFavorite();
+    button.bind(otherStore, 1);
+    button.toggleFavorite();
+    // The entry of item 1 is found behind the later entries of the same button
+    button.bind(store, 1);
+    button.toggleFavorite();
+    button.bind(store, 2);
+    button.toggleFavorite();
+    button.toggleFavorite();
+
+    mFrameTask.runFrame();
+    assertBatches(Arrays.asList("a:s0/2=true", "a:s1/1=true"));
+  }
+
+  @Test public void entriesOfSwappedBatchesAreNotReused() {
+    MaterialFavoriteButton a = button("a");
+    MaterialFavoriteButton b = button("b");
+    a.setFavorite(true);
+    b.setFavorite(true);
+    mFrameTask.runFrame();
+    b.setFavorite(false);
+    mFrameTask.runFrame();
+
+    // Back to the first batch: its index 0 still belongs to a, now reused by b
+    b.setFavorite(true);
+    a.setFavorite(false);
+    b.setFavorite(false);
+    mFrameTask.runFrame();
+
+    assertBatches(Arrays.asList("a=true", "b=true"), Arrays.asList("b=false"),
+        Arrays.asList("a=false"));
+  }
+
+  @Test public void flushDeliversRightAwayAndCancelsFrame() {
+    MaterialFavoriteButton a = button("a");
+    a.setFavorite(true);
+    mDispatcher.flush();
+    assertFalse(mFrameTask.mFramePending);
+    assertBatches(Arrays.asList("a=true"));
+  }
+
+  @Test public void suppressedChangesAreNotCollected() {
+    MaterialFavoriteButton a = button("a");
+    a.setFavoriteSuppressListener(true);
+    assertFalse(mFrameTask.mFramePending);
+    mDispatcher.flush();
+    assertEquals(0, mBatches.size());
+  }
+
+  private MaterialFavoriteButton button(String name) {
+    MaterialFavoriteButton button = new MaterialFavoriteButton.Builder(mActivity).create();
+    button.setTag(name);
+    button.setFavoriteChangeDispatcher(mDispatcher);
+    return button;
+  }
+
+  @SafeVarargs private final void assertBatches(List<String>... batches) {
+    assertEquals(Arrays.asList(batches), mBatches);
+  }
+
+  private FavoriteStateStore store() {
+    FavoriteStateStore store = new FavoriteStateStore();
+    mStores.add(store);
+    return store;
+  }
+
+  private String describe(FavoriteChangeDispatcher.Batch batch, int index) {
+    String item = "";
+    if (batch.hasItemId(index)) {
+      item = ":s" + mStores.indexOf(batch.getStateStore(index)) + "/" + batch.getItemId(index);
+    }
+    return batch.getButton(index).getTag() + item + "=" + batch.isFavorite(index);
+  }
+
+  /**
+   * Frame task run by the test instead of the display frame.
+   */
+  private static final class ManualFrameTask extends FrameTask {
+    FavoriteChangeDispatcher mDispatcher;
+    boolean mFramePending;
+
+    @Override void post() {
+      mFramePending = true;
+    }
+
+    @Override void cancel() {
+      mFramePending = false;
+    }
+
+    @Override void doFrame(long frameTimeNanos) {
+      mDispatcher.flush();
+    }
+
+    void runFrame() {
+      mFramePending = false;
+      doFrame(System.nanoTime());
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.github.ivbaranov.mfb;
+
+import android.app.Activity;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class FavoriteCounterViewTest {
+  private static final int COUNT = 37;
+  // Long enough for the posted states to be applied on a frame
+  private static final long SETTLE = 100;
+
+  private MaterialFavoriteButton mButton;
+  private FavoriteCounterView mCounter;
+
+  @Before public void setUp() {
+    Activity activity = Robolectric.setupActivity(Activity.class);
+    mButton = new MaterialFavoriteButton.Builder(activity).create();
+    mCounter = new FavoriteCounterView(activity);
+    mCounter.setCount(COUNT);
+    mButton.setCounterView(mCounter);
+  }
+
+  @Test public void userTogglesChangeCountByOne() {
+    mButton.performClick();
+    assertEquals(COUNT + 1, mCounter.getCount());
+    mButton.toggleFavorite();
+    assertEquals(COUNT, mCounter.getCount());
+    mButton.toggleFavorite(false);
+    assertEquals(COUNT + 1, mCounter.getCount());
+  }
+
+  @Test public void statesSetByAppLeaveCount() {
+    mButton.setFavorite(true);
+    mButton.setFavoriteAnimated(false);
+    mButton.setFavoriteSuppressListener(true);
+    assertTrue(mButton.isFavorite());
+    assertEquals(COUNT, mCounter.getCount());
+
+    // A background sync confirming or changing the state comes with its own count
+    mButton.postFavorite(false);
+    mButton.postFavoriteSuppressListener(true);
+    mButton.postFavorite(true);
+    Robolectric.getForegroundThreadScheduler().advanceBy(SETTLE, TimeUnit.MILLISECONDS);
+    assertTrue(mButton.isFavorite());
+    assertEquals(COUNT, mCounter.getCount());
+
+    mButton.bind(new FavoriteStateStore(), 1);
+    assertEquals(COUNT, mCounter.getCount());
+  }
+}
@@ -0,0 +1,123 @@
+package com.github.ivbaranov.mfb;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.View;
+import android.widget.FrameLayout;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class FavoritePayloadTest {
+  private static final int ANGLE = 360;
+  private static final int ROTATION_DURATION = 300;
+  private static final int BOUNCE_DURATION = 300;
+
+  private Activity mActivity;
+  private ScrapLayout mRoot;
+  private MaterialFavoriteButton mButton;
+
+  @Before public void setUp() {
+    mActivity = Robolectric.setupActivity(Activity.class);
+    mRoot = new ScrapLayout(mActivity);
+    mActivity.setContentView(mRoot);
+    MaterialFavoriteButton.setAnimationsEnabled(true);
+    mButton = new MaterialFavoriteButton.Builder(mActivity) //
+        .rotationAngle(ANGLE)
+        .rotationDuration(ROTATION_DURATION)
+        .bounceDuration(BOUNCE_DURATION)
+        .create();
+    mRoot.addView(mButton);
+    layout();
+  }
+
+  @Test public void payloadRebindOfVisibleRowAnimates() {
+    // RecyclerView scraps its rows before binding payloads during layout
+    mRoot.scrap(mButton);
+    assertFalse(mButton.isShown());
+    assertTrue(FavoritePayload.apply(mButton, payloads(FavoritePayload.FAVORITE)));
+    mRoot.unscrap(mButton);
+    layout();
+    mButton.getViewTreeObserver().dispatchOnPreDraw();
+
+    assertTrue(mButton.isFavorite());
+    advance(ROTATION_DURATION / 2);
+    float rotation = mButton.getRotation();
+    assertTrue("rotation=" + rotation, rotation > 0 && rotation < ANGLE);
+    advance(ROTATION_DURATION + BOUNCE_DURATION);
+    assertEquals(ANGLE, mButton.getRotation(), 0);
+  }
+
+  @Test public void payloadRebindOfHiddenRowJumps() {
+    mRoot.scrap(mButton);
+    FavoritePayload.apply(mButton, payloads(FavoritePayload.FAVORITE));
+    mRoot.unscrap(mButton);
+    mRoot.setVisibility(View.GONE);
+    mButton.getViewTreeObserver().dispatchOnPreDraw();
+
+    assertTrue(mButton.isFavorite());
+    assertEquals(0, mButton.getRotation(), 0);
+    advance(ROTATION_DURATION / 2);
+    assertEquals(0, mButton.getRotation(), 0);
+  }
+
+  @Test public void laterStateReplacesPendingPayload() {
+    mRoot.scrap(mButton);
+    FavoritePayload.apply(mButton, payloads(FavoritePayload.FAVORITE));
+    mButton.setFavoriteSuppressListener(false);
+    mRoot.unscrap(mButton);
+    mButton.getViewTreeObserver().dispatchOnPreDraw();
+
+    assertFalse(mButton.isFavorite());
+  }
+
+  @Test public void otherPayloadsNeedFullBind() {
+    List<Object> payloads = Collections.<Object>singletonList("other");
+    assertFalse(FavoritePayload.apply(mButton, payloads));
+    assertFalse(FavoritePayload.apply(mButton, Collections.<Object>emptyList()));
+  }
+
+  private void layout() {
+    View decor = mActivity.getWindow().getDecorView();
+    decor.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+        View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+    decor.layout(0, 0, 480, 800);
+  }
+
+  private static List<Object> payloads(FavoritePayload payload) {
+    return Collections.<Object>singletonList(payload);
+  }
+
+  private static void advance(long millis) {
+    Robolectric.getForegroundThreadScheduler().advanceBy(millis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Detaches children from the layout but not from the window, like RecyclerView scrapping rows.
+   */
+  private static final class ScrapLayout extends FrameLayout {
+    ScrapLayout(Context context) {
+      super(context);
+    }
+
+    void scrap(View child) {
+      detachViewFromParent(child);
+    }
+
+    void unscrap(View child) {
+      attachViewToParent(child, -1, child.getLayoutParams());
+    }
+  }
+}
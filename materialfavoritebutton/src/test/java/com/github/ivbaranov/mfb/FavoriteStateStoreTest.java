@@ -0,0 +1,163 @@
+package com.github.ivbaranov.mfb;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FavoriteStateStoreTest {
+  // Table size of a store created for one id, ids sharing a home slot in it collide
+  private static final int TABLE_SIZE = 16;
+
+  @Test public void addRemoveContains() {
+    FavoriteStateStore store = new FavoriteStateStore();
+    assertTrue(store.setFavorite(42, true));
+    assertFalse(store.setFavorite(42, true));
+    assertTrue(store.isFavorite(42));
+    assertFalse(store.isFavorite(43));
+    assertEquals(1, store.size());
+
+    assertTrue(store.setFavorite(42, false));
+    assertFalse(store.setFavorite(42, false));
+    assertFalse(store.isFavorite(42));
+    assertEquals(0, store.size());
+  }
+
+  @Test public void zeroAndNegativeIds() {
+    FavoriteStateStore store = new FavoriteStateStore();
+    long[] ids = { 0, -1, Long.MIN_VALUE, Long.MAX_VALUE, -42 };
+    for (long id : ids) {
+      assertFalse(store.isFavorite(id));
+      assertTrue(store.setFavorite(id, true));
+    }
+    assertEquals(ids.length, store.size());
+    assertIds(store, ids);
+
+    assertTrue(store.setFavorite(0, false));
+    assertFalse(store.isFavorite(0));
+    assertTrue(store.isFavorite(-1));
+    assertIds(store, -1, Long.MIN_VALUE, Long.MAX_VALUE, -42);
+  }
+
+  @Test public void collidingIds() {
+    long[] ids = collidingIds(6);
+    FavoriteStateStore store = new FavoriteStateStore(1);
+    for (long id : ids) {
+      store.setFavorite(id, true);
+    }
+    for (long id : ids) {
+      assertTrue(store.isFavorite(id));
+    }
+    assertIds(store, ids);
+  }
+
+  @Test public void removalInsideProbeChainKeepsFollowingIds() {
+    long[] ids = collidingIds(5);
+    for (int removed = 0; removed < ids.length; removed++) {
+      FavoriteStateStore store = new FavoriteStateStore(1);
+      for (long id : ids) {
+        store.setFavorite(id, true);
+      }
+      assertTrue(store.setFavorite(ids[removed], false));
+      for (int i = 0; i < ids.length; i++) {
+        assertEquals("removed=" + removed + " i=" + i, i != removed, store.isFavorite(ids[i]));
+      }
+      // The freed slot is reused, not left as a tombstone
+      assertTrue(store.setFavorite(ids[removed], true));
+      assertIds(store, ids);
+    }
+  }
+
+  @Test public void growsAcrossResizeThreshold() {
+    FavoriteStateStore store = new FavoriteStateStore();
+    int count = TABLE_SIZE * 8 + 1;
+    for (long id = 1; id <= count; id++) {
+      assertTrue(store.setFavorite(id * 1000003, true));
+      assertEquals(id, store.size());
+    }
+    for (long id = 1; id <= count; id++) {
+      assertTrue(store.isFavorite(id * 1000003));
+      assertFalse(store.isFavorite(id * 1000003 + 1));
+    }
+  }
+
+  @Test public void ensureCapacityKeepsIds() {
+    FavoriteStateStore store = new FavoriteStateStore(1);
+    long[] ids = collidingIds(4);
+    for (long id : ids) {
+      store.setFavorite(id, true);
+    }
+    store.setFavorite(0, true);
+    store.ensureCapacity(10000);
+    store.ensureCapacity(1);
+    for (long id : ids) {
+      assertTrue(store.isFavorite(id));
+    }
+    assertTrue(store.isFavorite(0));
+    assertEquals(ids.length + 1, store.size());
+  }
+
+  @Test public void clearRemovesEverything() {
+    FavoriteStateStore store = new FavoriteStateStore();
+    store.setFavorite(0, true);
+    store.setFavorite(7, true);
+    store.clear();
+    assertEquals(0, store.size());
+    assertFalse(store.isFavorite(0));
+    assertFalse(store.isFavorite(7));
+    assertEquals(0, store.toArray().length);
+  }
+
+  @Test public void matchesHashSetUnderRandomChanges() {
+    Random random = new Random(1);
+    FavoriteStateStore store = new FavoriteStateStore();
+    HashSet<Long> expected = new HashSet<Long>();
+    for (int i = 0; i < 100000; i++) {
+      // A small id range keeps collisions, removals and regrowth frequent
+      long id = random.nextInt(512) - 256;
+      boolean favorite = random.nextBoolean();
+      boolean changed = favorite ? expected.add(id) : expected.remove(id);
+      assertEquals(changed, store.setFavorite(id, favorite));
+    }
+    assertEquals(expected.size(), store.size());
+    for (long id = -256; id < 256; id++) {
+      assertEquals(expected.contains(id), store.isFavorite(id));
+    }
+  }
+
+  /**
+   * Returns non-zero ids sharing the home slot of the first one in a store created for one id.
+   */
+  private static long[] collidingIds(int count) {
+    long[] ids = new long[count];
+    int home = hash(1) & (TABLE_SIZE - 1);
+    int found = 0;
+    for (long id = 1; found < count; id++) {
+      if ((hash(id) & (TABLE_SIZE - 1)) == home) {
+        ids[found++] = id;
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Same hash as the store uses.
+   */
+  private static int hash(long id) {
+    long h = id * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private static void assertIds(FavoriteStateStore store, long... ids) {
+    long[] expected = ids.clone();
+    long[] actual = store.toArray();
+    Arrays.sort(expected);
+    Arrays.sort(actual);
+    assertArrayEquals(expected, actual);
+  }
+}
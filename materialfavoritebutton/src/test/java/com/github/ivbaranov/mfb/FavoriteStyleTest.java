@@ -0,0 +1,61 @@
+package com.github.ivbaranov.mfb;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FavoriteStyleTest {
+  private static final int STYLES = 1000;
+
+  @Test public void equalStylesAreSameInstance() {
+    FavoriteStyle style = new FavoriteStyle.Builder().color(0xff2196f3).build();
+    assertSame(style, new FavoriteStyle.Builder().color(0xff2196f3).build());
+    assertSame(style, style.buildUpon().build());
+    assertNotSame(style, style.buildUpon().size(24).build());
+  }
+
+  @Test public void unusedStylesAreCollected() throws InterruptedException {
+    int before = FavoriteStyle.internedCount();
+    for (int i = 0; i < STYLES; i++) {
+      new FavoriteStyle.Builder().color(0xff000000 | i).rotationDuration(1234).build();
+    }
+
+    for (int i = 0; i < 50 && FavoriteStyle.internedCount() > before; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertTrue("interned=" + FavoriteStyle.internedCount() + " before=" + before,
+        FavoriteStyle.internedCount() <= before);
+  }
+
+  @Test public void usedStylesStayInterned() throws InterruptedException {
+    FavoriteStyle kept = new FavoriteStyle.Builder().color(0xff4caf50).bounceDuration(321).build();
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertSame(kept, new FavoriteStyle.Builder().color(0xff4caf50).bounceDuration(321).build());
+  }
+
+  @Test public void builtInStylesResolveToColors() {
+    assertEquals(0xff000000, new FavoriteStyle.Builder().build().getColor());
+    assertEquals(0xff000000, new FavoriteStyle.Builder()
+        .color(MaterialFavoriteButton.STYLE_BLACK).build().getColor());
+    assertEquals(0xffffffff, new FavoriteStyle.Builder()
+        .color(MaterialFavoriteButton.STYLE_WHITE).build().getColor());
+  }
+
+  @Test public void argbColorsSharingBuiltInValuesStayColors() {
+    FavoriteStyle transparent = new FavoriteStyle.Builder().argbColor(0x00000000).build();
+    FavoriteStyle nearlyTransparent = new FavoriteStyle.Builder().argbColor(0x00000001).build();
+    assertEquals(0x00000000, transparent.getColor());
+    assertEquals(0x00000001, nearlyTransparent.getColor());
+    assertNotSame(transparent, new FavoriteStyle.Builder()
+        .color(MaterialFavoriteButton.STYLE_BLACK).build());
+    assertNotSame(nearlyTransparent, new FavoriteStyle.Builder()
+        .color(MaterialFavoriteButton.STYLE_WHITE).build());
+  }
+}
@@ -0,0 +1,128 @@
+package com.github.ivbaranov.mfb;
+
+import android.app.Activity;
+import android.graphics.drawable.Drawable;
+import android.widget.FrameLayout;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class MaterialFavoriteButtonAnimationTest {
+  private static final int FRAME = 16;
+  private static final int ROTATION_DURATION = 300;
+  private static final int BOUNCE_DURATION = 300;
+
+  private Activity mActivity;
+  private FrameLayout mRoot;
+
+  @Before public void setUp() {
+    mActivity = Robolectric.setupActivity(Activity.class);
+    mRoot = new FrameLayout(mActivity);
+    mActivity.setContentView(mRoot);
+    MaterialFavoriteButton.setAnimationsEnabled(true);
+  }
+
+  @Test public void retargetAngleLooksTheSame() {
+    assertEquals(0, Utils.retargetAngle(360, -360), 0);
+    assertEquals(-270, Utils.retargetAngle(90, -360), 0);
+    assertEquals(270, Utils.retargetAngle(-90, 360), 0);
+    assertEquals(-144, Utils.retargetAngle(216, -216), 0);
+  }
+
+  @Test public void retargetAngleNeverTravelsFurtherThanFreshRotation() {
+    for (int angle = 30; angle <= 720; angle += 30) {
+      for (float rotation = -720; rotation <= 720; rotation += 7.5f) {
+        float from = Utils.retargetAngle(rotation, -angle);
+        assertTrue("angle=" + angle + " rotation=" + rotation, Math.abs(from + angle) <= angle);
+        from = Utils.retargetAngle(rotation, angle);
+        assertTrue("angle=" + angle + " rotation=" + rotation, Math.abs(angle - from) <= angle);
+      }
+    }
+  }
+
+  @Test public void toggleDuringBounceDoesNotSpinFurther() {
+    MaterialFavoriteButton button = attachedButton(360);
+    button.setFavoriteAnimated(true);
+    advance(ROTATION_DURATION + BOUNCE_DURATION / 2);
+    assertEquals(360, button.getRotation(), 0);
+
+    button.setFavoriteAnimated(false);
+    assertUnfavoriteTravel(button, 360);
+  }
+
+  @Test public void toggleDuringRotationDoesNotSpinFurther() {
+    MaterialFavoriteButton button = attachedButton(360);
+    button.setFavoriteAnimated(true);
+    advance(ROTATION_DURATION / 2);
+
+    button.setFavoriteAnimated(false);
+    assertUnfavoriteTravel(button, 360);
+  }
+
+  @Test public void changingAnimationMidRotationShowsStateAndEndsOnce() {
+    MaterialFavoriteButton button = attachedButton(360);
+    final int[] ends = new int[1];
+    final boolean[] endState = new boolean[1];
+    button.setOnFavoriteAnimationEndListener(
+        new MaterialFavoriteButton.OnFavoriteAnimationEndListener() {
+          @Override public void onAnimationEnd(MaterialFavoriteButton buttonView,
+              boolean favorite) {
+            ends[0]++;
+            endState[0] = favorite;
+          }
+        });
+    Drawable notFavorite = button.getDrawable();
+    button.setFavoriteAnimated(true);
+    advance(ROTATION_DURATION / 2);
+
+    // The bounce that swaps the icon never runs
+    button.setRotationDuration(ROTATION_DURATION * 2);
+    assertNotSame(notFavorite, button.getDrawable());
+    assertEquals(1, ends[0]);
+    assertTrue(endState[0]);
+    advance(2 * (ROTATION_DURATION + BOUNCE_DURATION));
+    assertEquals(1, ends[0]);
+  }
+
+  /**
+   * Steps the unfavorite animation frame by frame and checks it stays within the range of a fresh
+   * unfavorite rotation, from the moment it was started.
+   */
+  private void assertUnfavoriteTravel(MaterialFavoriteButton button, int angle) {
+    float travel = 0;
+    float previous = button.getRotation();
+    for (int elapsed = 0; elapsed < ROTATION_DURATION + 2 * FRAME; elapsed += FRAME) {
+      advance(FRAME);
+      float rotation = button.getRotation();
+      assertTrue("rotation=" + rotation, rotation >= -angle && rotation <= 0);
+      travel += Math.abs(rotation - previous);
+      previous = rotation;
+    }
+    assertEquals(-angle, button.getRotation(), 0);
+    assertTrue("travel=" + travel, travel <= angle + 0.01f);
+  }
+
+  private MaterialFavoriteButton attachedButton(int angle) {
+    MaterialFavoriteButton button = new MaterialFavoriteButton.Builder(mActivity) //
+        .rotationAngle(angle)
+        .rotationDuration(ROTATION_DURATION)
+        .bounceDuration(BOUNCE_DURATION)
+        .create();
+    mRoot.addView(button);
+    return button;
+  }
+
+  private static void advance(long millis) {
+    Robolectric.getForegroundThreadScheduler().advanceBy(millis, TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,152 @@
+package com.github.ivbaranov.mfb;
+
+import android.app.Activity;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class MaterialFavoriteButtonCommitTest {
+  private static final long ITEM_A = 1;
+  private static final long ITEM_B = 2;
+
+  private FakeCommitter mCommitter;
+  private FavoriteStateStore mStore;
+  private MaterialFavoriteButton mButton;
+  private int mListenerCalls;
+
+  @Before public void setUp() {
+    Activity activity = Robolectric.setupActivity(Activity.class);
+    mCommitter = new FakeCommitter();
+    mStore = new FavoriteStateStore();
+    mButton = new MaterialFavoriteButton.Builder(activity).create();
+    mButton.setFavoriteCommitter(mCommitter);
+    mButton.setOnFavoriteChangeListener(new MaterialFavoriteButton.OnFavoriteChangeListener() {
+      @Override public void onFavoriteChanged(MaterialFavoriteButton buttonView,
+          boolean favorite) {
+        mListenerCalls++;
+      }
+    });
+  }
+
+  @Test public void coalescedTapsCommitOnlyTheLatestState() {
+    mButton.bind(mStore, ITEM_A);
+    mButton.toggleFavorite();
+    mButton.toggleFavorite();
+    mButton.toggleFavorite();
+    mButton.toggleFavorite();
+    assertEquals(1, mCommitter.size());
+    assertTrue(mButton.isCommitPending());
+
+    // Committed true while the user went back to false, false is committed next
+    mCommitter.complete(0, true);
+    assertEquals(2, mCommitter.size());
+    assertCommit(1, ITEM_A, false);
+    mCommitter.complete(1, true);
+    assertFalse(mButton.isCommitPending());
+    assertFalse(mButton.isFavorite());
+    assertEquals(2, mCommitter.size());
+  }
+
+  @Test public void failureRollsBackShownItem() {
+    mButton.bind(mStore, ITEM_A);
+    mButton.toggleFavorite();
+    mCommitter.complete(0, false);
+
+    assertFalse(mButton.isFavorite());
+    assertFalse(mStore.isFavorite(ITEM_A));
+    assertFalse(mButton.isCommitPending());
+    assertEquals(1, mListenerCalls);
+  }
+
+  @Test public void failureAfterRebindRollsBackItsItem() {
+    mButton.bind(mStore, ITEM_A);
+    mButton.toggleFavorite();
+    mButton.bind(mStore, ITEM_B);
+    assertFalse(mButton.isCommitPending());
+
+    // Another item commits on its own, next to the one in flight
+    mButton.toggleFavorite();
+    assertEquals(2, mCommitter.size());
+    assertCommit(1, ITEM_B, true);
+
+    mCommitter.complete(0, false);
+    assertFalse(mStore.isFavorite(ITEM_A));
+    assertTrue(mStore.isFavorite(ITEM_B));
+    assertTrue(mButton.isFavorite());
+    assertTrue(mButton.isCommitPending());
+
+    mButton.bind(mStore, ITEM_A);
+    assertFalse(mButton.isFavorite());
+  }
+
+  @Test public void successAfterRebindKeepsItsItem() {
+    mButton.bind(mStore, ITEM_A);
+    mButton.toggleFavorite();
+    mButton.bind(mStore, ITEM_B);
+    mCommitter.complete(0, true);
+
+    assertTrue(mStore.isFavorite(ITEM_A));
+    assertFalse(mButton.isFavorite());
+    assertEquals(1, mCommitter.size());
+
+    mButton.bind(mStore, ITEM_A);
+    assertTrue(mButton.isFavorite());
+    assertFalse(mButton.isCommitPending());
+  }
+
+  @Test public void rebindDoesNotStartSecondCommitOfSameItem() {
+    mButton.bind(mStore, ITEM_A);
+    mButton.toggleFavorite();
+    mButton.bind(mStore, ITEM_B);
+    mButton.bind(mStore, ITEM_A);
+    assertTrue(mButton.isCommitPending());
+
+    mButton.toggleFavorite();
+    assertEquals(1, mCommitter.size());
+
+    mCommitter.complete(0, true);
+    assertEquals(2, mCommitter.size());
+    assertCommit(1, ITEM_A, false);
+  }
+
+  private void assertCommit(int index, long itemId, boolean favorite) {
+    assertEquals(itemId, mCommitter.mItemIds.get(index).longValue());
+    assertEquals(favorite, mCommitter.mStates.get(index));
+  }
+
+  private static final class FakeCommitter implements FavoriteCommitter {
+    final List<Long> mItemIds = new ArrayList<Long>();
+    final List<Boolean> mStates = new ArrayList<Boolean>();
+    final List<Callback> mCallbacks = new ArrayList<Callback>();
+
+    @Override public void commit(MaterialFavoriteButton button, long itemId, boolean favorite,
+        Callback callback) {
+      mItemIds.add(itemId);
+      mStates.add(favorite);
+      mCallbacks.add(callback);
+    }
+
+    int size() {
+      return mCallbacks.size();
+    }
+
+    void complete(int index, boolean committed) {
+      if (committed) {
+        mCallbacks.get(index).onCommitted();
+      } else {
+        mCallbacks.get(index).onFailed();
+      }
+    }
+  }
+}